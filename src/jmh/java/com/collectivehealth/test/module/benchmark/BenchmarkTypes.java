@@ -0,0 +1,122 @@
+package com.collectivehealth.test.module.benchmark;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Stack;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.Vector;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+import java.util.function.BinaryOperator;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleFunction;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleSupplier;
+import java.util.function.DoubleToIntFunction;
+import java.util.function.DoubleToLongFunction;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Function;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.IntSupplier;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntToLongFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.function.LongPredicate;
+import java.util.function.LongSupplier;
+import java.util.function.LongToDoubleFunction;
+import java.util.function.LongToIntFunction;
+import java.util.function.LongUnaryOperator;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleBiFunction;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntBiFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongBiFunction;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+
+/*
+ * Distinct JDK types to bind in benchmarks, so that the number of bindings
+ * can be varied without conflicting keys.
+ */
+final class BenchmarkTypes {
+
+    // Interfaces, to be mocked
+    static final List<Class<?>> INTERFACES = Arrays.asList(BiConsumer.class, BiFunction.class, BiPredicate.class,
+            BinaryOperator.class, BooleanSupplier.class, Consumer.class, DoubleBinaryOperator.class,
+            DoubleConsumer.class, DoubleFunction.class, DoublePredicate.class, DoubleSupplier.class,
+            DoubleToIntFunction.class, DoubleToLongFunction.class, DoubleUnaryOperator.class, Function.class,
+            IntBinaryOperator.class, IntConsumer.class, IntFunction.class, IntPredicate.class, IntSupplier.class,
+            IntToDoubleFunction.class, IntToLongFunction.class, IntUnaryOperator.class, LongBinaryOperator.class,
+            LongConsumer.class, LongFunction.class, LongPredicate.class, LongSupplier.class,
+            LongToDoubleFunction.class, LongToIntFunction.class, LongUnaryOperator.class, ObjDoubleConsumer.class,
+            ObjIntConsumer.class, ObjLongConsumer.class, Predicate.class, Supplier.class, ToDoubleBiFunction.class,
+            ToDoubleFunction.class, ToIntBiFunction.class, ToIntFunction.class, ToLongBiFunction.class,
+            ToLongFunction.class, UnaryOperator.class);
+
+    // Concrete classes with a no-arg constructor, to be spied
+    static final List<Class<?>> CLASSES = Arrays.asList(ArrayDeque.class, ArrayList.class, BitSet.class,
+            ConcurrentHashMap.class, ConcurrentLinkedQueue.class, CopyOnWriteArrayList.class, HashMap.class,
+            HashSet.class, IdentityHashMap.class, LinkedHashMap.class, LinkedHashSet.class, LinkedList.class,
+            PriorityQueue.class, Random.class, Stack.class, TreeMap.class, TreeSet.class, Vector.class,
+            WeakHashMap.class, Object.class);
+
+    // Value types, paired with an instance, to be bound as is
+    static final List<Object> VALUES = Arrays.asList("value", 1, 1L, 1.0d, 1.0f, (short) 1, (byte) 1, 'v', true,
+            BigInteger.ONE, BigDecimal.ONE);
+
+    private BenchmarkTypes() {
+    }
+
+    static Class<?>[] interfaces(int count) {
+        return sublist(INTERFACES, count).toArray(new Class<?>[0]);
+    }
+
+    static Class<?>[] classes(int count) {
+        return sublist(CLASSES, count).toArray(new Class<?>[0]);
+    }
+
+    static List<Object> values(int count) {
+        return sublist(VALUES, count);
+    }
+
+    private static <T> List<T> sublist(List<T> list, int count) {
+        if (count > list.size()) {
+            throw new IllegalArgumentException("At most " + list.size() + " distinct types available, " + count + " requested.");
+        }
+        return list.subList(0, count);
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.collectivehealth.test.module.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.collectivehealth.test.module.ClasspathIndex;
+import com.collectivehealth.test.module.PackageScan;
+
+/*
+ * Cost of finding the interfaces of a package on the benchmark's own class
+ * path (Guice, Mockito, ByteBuddy, JMH and their dependencies):
+ *
+ * - `indexClassPath` walks every directory and jar, which is what a naive
+ *   scan pays on every test.
+ * - `indexClassPathFromCache` reuses the jar listings persisted by an
+ *   earlier JVM, which is what later forks pay once.
+ * - `scanPackage` is what every test pays once the shared index is built.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClasspathIndexBenchmark {
+
+    private List<Path> classPath;
+    private Path cacheDirectory;
+
+    @Setup
+    public void setUp() throws IOException {
+        classPath = ClasspathIndex.systemClassPath();
+        cacheDirectory = Files.createTempDirectory("classpath-index");
+        new ClasspathIndex(classPath, cacheDirectory);
+        ClasspathIndex.shared();
+    }
+
+    @Benchmark
+    public ClasspathIndex indexClassPath() throws IOException {
+        return new ClasspathIndex(classPath, null);
+    }
+
+    @Benchmark
+    public ClasspathIndex indexClassPathFromCache() throws IOException {
+        return new ClasspathIndex(classPath, cacheDirectory);
+    }
+
+    @Benchmark
+    public List<Class<?>> scanPackage() {
+        return PackageScan.of("com.google.inject").withSubpackages().getInterfaces();
+    }
+
+}
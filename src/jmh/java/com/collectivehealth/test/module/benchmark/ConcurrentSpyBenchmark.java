@@ -0,0 +1,62 @@
+package com.collectivehealth.test.module.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import com.collectivehealth.test.module.MockMode;
+import com.collectivehealth.test.module.TestModule;
+import com.google.inject.Guice;
+
+/*
+ * Throughput of one spy called from 32 threads at once, per mock mode. Run
+ * with `-t` to vary the number of threads, i.e. `-t 1` for the uncontended
+ * baseline. Recording spies keep every invocation, so the spy is recreated
+ * for every iteration, and the heap is raised to hold one iteration's worth.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Threads(32)
+@State(Scope.Benchmark)
+public class ConcurrentSpyBenchmark {
+
+    @Param({ "RECORDING", "STUB_ONLY", "COUNTING" })
+    public MockMode mode;
+
+    private Service spy;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        spy = Guice.createInjector(new TestModule()
+                .withMockMode(mode)
+                .withSpiedClasses(Service.class))
+                .getInstance(Service.class);
+    }
+
+    @Benchmark
+    public int callSpy() {
+        return spy.compute(42);
+    }
+
+    public static class Service {
+
+        public int compute(int value) {
+            return value * 31 + 7;
+        }
+
+    }
+
+}
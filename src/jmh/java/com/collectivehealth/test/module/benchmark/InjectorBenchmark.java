@@ -0,0 +1,124 @@
+package com.collectivehealth.test.module.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.collectivehealth.test.module.ClassInstancePair;
+import com.collectivehealth.test.module.TestModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+/*
+ * Cost of `Guice.createInjector()` with a `TestModule`, configured the way a
+ * test would: the module is built from scratch for every injector. Run with
+ * the GC profiler (the `benchmark` profile's default) to also get allocation
+ * per injector, i.e. `gc.alloc.rate.norm`.
+ *
+ * Narrow down the parameters from the command line to compare a single
+ * shape, i.e. `-p mocked=40 -p spied=0`.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InjectorBenchmark {
+
+    @Param({ "0", "40" })
+    public int mocked;
+
+    @Param({ "0", "20" })
+    public int spied;
+
+    @Param({ "0", "10" })
+    public int unnamedInstances;
+
+    @Param({ "0", "50" })
+    public int namedInstances;
+
+    @Param({ "0", "100" })
+    public int defaults;
+
+    private Class<?>[] mockedClasses;
+    private Class<?>[] spiedClasses;
+    private List<Object> values;
+    private TestModule frozenModule;
+
+    @Setup
+    public void setUp() {
+        mockedClasses = BenchmarkTypes.interfaces(mocked);
+        spiedClasses = BenchmarkTypes.classes(spied);
+        values = BenchmarkTypes.values(unnamedInstances);
+        frozenModule = createModule().freeze();
+    }
+
+    @Benchmark
+    public Injector createInjector() {
+        return Guice.createInjector(createModule());
+    }
+
+    /*
+     * The same configuration, shared across injectors, which only resolves
+     * its binding plan once.
+     */
+    @Benchmark
+    public Injector createInjectorFromFrozenModule() {
+        return Guice.createInjector(frozenModule);
+    }
+
+    private TestModule createModule() {
+        TestModule module = new DefaultsTestModule(defaults)
+                .withMockedClasses(mockedClasses)
+                .withSpiedClasses(spiedClasses);
+        for (Object value : values) {
+            withInstance(module, value);
+        }
+        for (int i = 0; i < namedInstances; i++) {
+            module.withInstance(String.class, "named" + i, "value" + i);
+        }
+        return module;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void withInstance(TestModule module, T value) {
+        module.withInstance((Class<T>) value.getClass(), value);
+    }
+
+    /*
+     * Named defaults, half of which are overridden by the named instances
+     * when both are present.
+     */
+    private static class DefaultsTestModule extends TestModule {
+
+        private final int defaults;
+
+        private DefaultsTestModule(int defaults) {
+            this.defaults = defaults;
+        }
+
+        @Override
+        protected Collection<ClassInstancePair<?>> getDefaultInstances() {
+            Collection<ClassInstancePair<?>> instances = new ArrayList<>(defaults);
+            for (int i = 0; i < defaults; i++) {
+                String name = (i % 2 == 0 ? "named" : "default") + i;
+                instances.add(new ClassInstancePair<String>(String.class, name, "default" + i));
+            }
+            return instances;
+        }
+
+    }
+
+}
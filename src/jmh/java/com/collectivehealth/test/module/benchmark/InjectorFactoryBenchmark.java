@@ -0,0 +1,73 @@
+package com.collectivehealth.test.module.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.collectivehealth.test.module.TestModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Singleton;
+import com.google.inject.Stage;
+
+/*
+ * Cost of building injectors for a typical 50-binding module (20 mocks, 10
+ * instances and 20 real singletons) through `Guice.createInjector()`, in
+ * either stage.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InjectorFactoryBenchmark {
+
+    private TestModule module;
+
+    @Setup
+    public void setUp() {
+        module = new SingletonsTestModule().withMockedClasses(BenchmarkTypes.interfaces(20));
+        for (Object value : BenchmarkTypes.values(10)) {
+            withInstance(module, value);
+        }
+        module = module.freeze();
+    }
+
+    @Benchmark
+    public Injector guiceDevelopment() {
+        return Guice.createInjector(module);
+    }
+
+    @Benchmark
+    public Injector guiceProduction() {
+        return Guice.createInjector(Stage.PRODUCTION, module);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void withInstance(TestModule module, T value) {
+        module.withInstance((Class<T>) value.getClass(), value);
+    }
+
+    /*
+     * Binds the concrete benchmark classes as singletons.
+     */
+    private static class SingletonsTestModule extends TestModule {
+
+        @Override
+        protected void additionalSetup() {
+            for (Class<?> c : BenchmarkTypes.classes(20)) {
+                bind(c).in(Singleton.class);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.collectivehealth.test.module.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.util.Arrays;
+import java.util.Collection;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+/*
+ * Metaspace taken up during each iteration, in bytes, i.e. by generated mock
+ * classes. Use with `-Djmh.profiler=com.collectivehealth.test.module.benchmark.MetaspaceProfiler`.
+ */
+public class MetaspaceProfiler implements InternalProfiler {
+
+    private long before;
+
+    @Override
+    public String getDescription() {
+        return "Metaspace used during each iteration";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        before = metaspaceUsed();
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams,
+            IterationResult result) {
+        return Arrays.asList(new ScalarResult("metaspace.used", metaspaceUsed() - before, "bytes", AggregationPolicy.AVG));
+    }
+
+    private static long metaspaceUsed() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if ("Metaspace".equals(pool.getName())) {
+                return pool.getUsage().getUsed();
+            }
+        }
+        return 0;
+    }
+
+}
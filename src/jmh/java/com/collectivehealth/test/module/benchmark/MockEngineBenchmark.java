@@ -0,0 +1,67 @@
+package com.collectivehealth.test.module.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import com.collectivehealth.test.module.MockEngine;
+import com.collectivehealth.test.module.MockFactory;
+import com.collectivehealth.test.module.MockKind;
+import com.collectivehealth.test.module.MockMode;
+import com.collectivehealth.test.module.ProxyMockEngine;
+
+/*
+ * Mockito (`MockFactory`) against JDK proxies (`ProxyMockEngine`) for mocking
+ * interfaces:
+ *
+ * - `create` is the steady-state cost of one more mock, once the proxy class
+ *   exists.
+ * - `coldStart` mocks every interface of `BenchmarkTypes` once, in a fresh
+ *   JVM, which is what the first tests of a suite pay for. Run it with
+ *   `MetaspaceProfiler` to see the metaspace the generated classes take up.
+ */
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class MockEngineBenchmark {
+
+    @Param({ "mockito", "proxy" })
+    public String engine;
+
+    private MockEngine mockEngine;
+
+    @Setup
+    public void setUp() {
+        mockEngine = "proxy".equals(engine) ? ProxyMockEngine.shared() : MockFactory.shared();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    public Object create() {
+        return mockEngine.create(Runnable.class, MockKind.MOCK, MockMode.RECORDING);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    @Fork(5)
+    public void coldStart(Blackhole blackhole) {
+        for (Class<?> c : BenchmarkTypes.INTERFACES) {
+            blackhole.consume(mockEngine.create(c, MockKind.MOCK, MockMode.RECORDING));
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.collectivehealth.test.module.benchmark;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.collectivehealth.test.module.TestModule;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+/*
+ * Per-injector cost of mocking a handful of types, before (a plain module
+ * calling `Mockito.mock()` directly, which is what `TestModule` used to do)
+ * and after (`TestModule` going through the shared `MockFactory`).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MockFactoryBenchmark {
+
+    private static final Class<?>[] MOCKED_CLASSES = { Runnable.class, Callable.class, Supplier.class,
+            Function.class, Comparable.class, CharSequence.class, AutoCloseable.class, Iterable.class };
+
+    @Benchmark
+    public Injector before() {
+        return Guice.createInjector(new AbstractModule() {
+
+            @Override
+            protected void configure() {
+                for (Class<?> c : MOCKED_CLASSES) {
+                    mock(c);
+                }
+            }
+
+            private <T> void mock(Class<T> c) {
+                bind(c).toInstance(Mockito.mock(c));
+            }
+
+        });
+    }
+
+    @Benchmark
+    public Injector after() {
+        return Guice.createInjector(new TestModule().withMockedClasses(MOCKED_CLASSES));
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.collectivehealth.test.module.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.collectivehealth.test.module.TestModule;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.Module;
+import com.google.inject.name.Names;
+import com.google.inject.util.Modules;
+
+/*
+ * Cost of overriding a few bindings of a large production module, through
+ * `Modules.override()` (which configures the production module and walks its
+ * elements for every injector) and through
+ * `TestModule.withProductionModules()` (which only replays a recording).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProductionModuleBenchmark {
+
+    private static final int OVERRIDDEN = 10;
+
+    @Param({ "1000", "5000" })
+    public int bindings;
+
+    private Module production;
+
+    @Setup
+    public void setUp() {
+        production = new ProductionModule(bindings);
+    }
+
+    @Benchmark
+    public Injector modulesOverride() {
+        return Guice.createInjector(Modules.override(production).with(withOverrides(new TestModule())));
+    }
+
+    @Benchmark
+    public Injector withProductionModules() {
+        return Guice.createInjector(withOverrides(new TestModule().withProductionModules(production)));
+    }
+
+    private static TestModule withOverrides(TestModule module) {
+        for (int i = 0; i < OVERRIDDEN; i++) {
+            module.withInstance(String.class, "binding" + i, "overridden" + i);
+        }
+        return module;
+    }
+
+    /*
+     * Named instance bindings, and linked bindings to them.
+     */
+    private static class ProductionModule extends AbstractModule {
+
+        private final int bindings;
+
+        private ProductionModule(int bindings) {
+            this.bindings = bindings;
+        }
+
+        @Override
+        protected void configure() {
+            for (int i = 0; i < bindings / 2; i++) {
+                bind(Key.get(String.class, Names.named("binding" + i))).toInstance("value" + i);
+                bind(Key.get(CharSequence.class, Names.named("binding" + i))).to(Key.get(String.class, Names.named("binding" + i)));
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,159 @@
+package com.collectivehealth.test.module;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.lang3.ClassUtils;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+
+/**
+ * The `@Mocked`, `@Spied` and `@Bound` fields of a test class and its
+ * superclasses, scanned once per class, with an accessor for each.
+ */
+
+final class AnnotatedFields {
+
+    private static final ClassValue<AnnotatedFields> FIELDS = new ClassValue<AnnotatedFields>() {
+
+        @Override
+        protected AnnotatedFields computeValue(Class<?> type) {
+            return new AnnotatedFields(type);
+        }
+
+    };
+
+    private static final MethodType SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+
+    final List<Class<?>> mockedClasses;
+    final List<Class<?>> spiedClasses;
+    private final List<AnnotatedField> injected;
+    private final List<AnnotatedField> bound;
+
+    private AnnotatedFields(Class<?> type) {
+        List<Class<?>> mockedClasses = new ArrayList<>();
+        List<Class<?>> spiedClasses = new ArrayList<>();
+        List<AnnotatedField> injected = new ArrayList<>();
+        List<AnnotatedField> bound = new ArrayList<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (field.isAnnotationPresent(Mocked.class)) {
+                    mockedClasses.add(field.getType());
+                    injected.add(new AnnotatedField(field, null));
+                } else if (field.isAnnotationPresent(Spied.class)) {
+                    spiedClasses.add(field.getType());
+                    injected.add(new AnnotatedField(field, null));
+                } else if (field.isAnnotationPresent(Bound.class)) {
+                    bound.add(new AnnotatedField(field, field.getAnnotation(Bound.class).name()));
+                }
+            }
+        }
+        this.mockedClasses = Collections.unmodifiableList(mockedClasses);
+        this.spiedClasses = Collections.unmodifiableList(spiedClasses);
+        this.injected = injected;
+        this.bound = bound;
+    }
+
+    static AnnotatedFields of(Class<?> type) {
+        return FIELDS.get(type);
+    }
+
+    /**
+     * A pair for every `@Bound` field, holding its current value.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    List<ClassInstancePair<?>> getBoundInstances(Object test) {
+        List<ClassInstancePair<?>> instances = new ArrayList<>(bound.size());
+        for (AnnotatedField field : bound) {
+            Object value = field.get(test);
+            if (value == null) {
+                throw new IllegalArgumentException("@Bound field " + field.name + " of " + test.getClass().getName() + " is null.");
+            }
+            instances.add(new ClassInstancePair(field.type, field.boundName, value));
+        }
+        return instances;
+    }
+
+    /**
+     * Set every `@Mocked` and `@Spied` field of the test once the injector is
+     * created, to be passed to `Binder.requestInjection()`.
+     */
+    Object injectorFor(Object test) {
+        return new FieldInjector(this, test);
+    }
+
+    private static class AnnotatedField {
+
+        private final String name;
+        private final Class<?> type;
+        // Only for `@Bound` fields, `null` for injected ones
+        private final String boundName;
+        private final MethodHandle getter;
+        private final MethodHandle setter; // Only for injected fields
+
+        private AnnotatedField(Field field, String boundName) {
+            // Static fields would be shared by tests running in parallel
+            if (Modifier.isStatic(field.getModifiers()) || (boundName == null && Modifier.isFinal(field.getModifiers()))) {
+                throw new IllegalArgumentException("Annotated field " + field.getName() + " of "
+                        + field.getDeclaringClass().getName() + " can't be static, and can't be final unless @Bound.");
+            }
+            this.name = field.getName();
+            this.type = ClassUtils.primitiveToWrapper(field.getType());
+            this.boundName = boundName;
+            field.setAccessible(true);
+            try {
+                this.getter = MethodHandles.lookup().unreflectGetter(field).asType(GETTER);
+                this.setter = boundName == null ? MethodHandles.lookup().unreflectSetter(field).asType(SETTER) : null;
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private Object get(Object test) {
+            try {
+                return getter.invokeExact(test);
+            } catch (Throwable e) {
+                throw new IllegalStateException("Unable to read field " + name, e);
+            }
+        }
+
+        private void set(Object test, Object value) {
+            try {
+                setter.invokeExact(test, value);
+            } catch (Throwable e) {
+                throw new IllegalStateException("Unable to set field " + name, e);
+            }
+        }
+
+    }
+
+    /*
+     * Requested for injection, so Guice calls it with the injector it just
+     * created.
+     */
+    static class FieldInjector {
+
+        private final AnnotatedFields fields;
+        private final Object test;
+
+        private FieldInjector(AnnotatedFields fields, Object test) {
+            this.fields = fields;
+            this.test = test;
+        }
+
+        @Inject
+        void inject(Injector injector) {
+            for (AnnotatedField field : fields.injected) {
+                field.set(test, injector.getInstance(field.type));
+            }
+        }
+
+    }
+
+}
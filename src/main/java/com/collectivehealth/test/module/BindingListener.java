@@ -0,0 +1,70 @@
+package com.collectivehealth.test.module;
+
+/**
+ * Notified of how long `TestModule.configure()` spends in each of its phases,
+ * and in each individual mock or spy creation. Register through
+ * `TestModule.withBindingListener()`.
+ *
+ * Listeners may be shared by modules configured on several threads at once,
+ * and must be thread-safe.
+ */
+
+public interface BindingListener {
+
+    /**
+     * The phases of `TestModule.configure()`, in order.
+     */
+    enum Phase {
+
+        /**
+         * Binding `withInstance()` instances.
+         */
+        INSTANCES,
+
+        /**
+         * Binding `withMockedClasses()` classes.
+         */
+        MOCKS,
+
+        /**
+         * Binding `withSpiedClasses()` classes.
+         */
+        SPIES,
+
+        /**
+         * Filtering and binding `getDefaultInstances()`.
+         */
+        DEFAULTS,
+
+        /**
+         * Replaying the bindings of `withProductionModules()` that aren't
+         * overridden.
+         */
+        PRODUCTION,
+
+        /**
+         * Binding mocks for `withAutoMockedDependencies()`.
+         */
+        AUTO_MOCKS,
+
+        /**
+         * Running `additionalSetup()`.
+         */
+        ADDITIONAL_SETUP
+
+    }
+
+    /**
+     * A phase of `configure()` has completed.
+     */
+    default void phaseCompleted(Class<? extends TestModule> module, Phase phase, long nanos) {
+    }
+
+    /**
+     * A mock or spy has been created. With `withLazyMocking()`, this happens
+     * whenever Guice first provisions it, rather than during `configure()`.
+     */
+    default void mockCreated(Class<? extends TestModule> module, Class<?> c, MockKind kind, long nanos) {
+    }
+
+}
@@ -0,0 +1,259 @@
+package com.collectivehealth.test.module;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import com.google.inject.Key;
+import com.google.inject.Module;
+
+/**
+ * A `TestModule`'s explicit configuration, resolved once and replayed by every
+ * `configure()` until the module changes: the keys of its instances, mocks
+ * and spies, the mode and engine of each mock and spy, the set of keys
+ * defaults are checked against, and the recorded production modules.
+ *
+ * Tests usually build a new module each time, so the mocked and spied
+ * classes, resolved to their keys, modes and engines, are also cached across
+ * the JVM by configuration, and shared by every plan configured the same
+ * way. That cache is bounded, and only holds classes, modes and engines,
+ * never instances.
+ */
+
+final class BindingPlan {
+
+    private static final int MAXIMUM_RESOLVED = 256;
+
+    // Mock configuration -> its resolved mocks and spies, least recently used
+    // evicted first
+    private static final Map<MockConfiguration, ResolvedMocks> RESOLVED = new LinkedHashMap<MockConfiguration, ResolvedMocks>(
+            16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<MockConfiguration, ResolvedMocks> eldest) {
+            return size() > MAXIMUM_RESOLVED;
+        }
+
+    };
+
+    final List<ClassInstancePair<?>> instances;
+    final List<MockBinding<?>> mocks;
+    final List<MockBinding<?>> spies;
+    // Every key bound explicitly, which defaults can't override
+    final Set<Key<?>> keys;
+    // `null` without production modules
+    final RecordedModules production;
+
+    BindingPlan(Collection<ClassInstancePair<?>> instances, Collection<Class<?>> mockedClasses,
+            Collection<Class<?>> spiedClasses, Collection<ClassInstancePair<?>> spiedInstances,
+            Collection<Class<?>> prototypeSpiedClasses, boolean prototypeSpies, Map<Class<?>, MockMode> mockModes,
+            MockMode defaultMockMode, Map<Class<?>, MockEngine> mockEngines, MockEngine defaultMockEngine,
+            List<Module> productionModules) {
+        ResolvedMocks resolved = resolved(new MockConfiguration(mockedClasses, spiedClasses, prototypeSpiedClasses,
+                prototypeSpies, mockModes, defaultMockMode, mockEngines, defaultMockEngine));
+        this.instances = Collections.unmodifiableList(new ArrayList<>(instances));
+        this.mocks = resolved.mocks;
+        if (spiedInstances.isEmpty()) {
+            this.spies = resolved.spies;
+        } else {
+            List<MockBinding<?>> spies = new ArrayList<>(resolved.spies);
+            for (ClassInstancePair<?> spiedInstance : spiedInstances) {
+                spies.add(MockBinding.ofInstance(spiedInstance, mockModes.getOrDefault(spiedInstance.c, defaultMockMode)));
+            }
+            this.spies = Collections.unmodifiableList(spies);
+        }
+
+        Set<Key<?>> keys = new HashSet<>(resolved.keys);
+        for (ClassInstancePair<?> classInstancePair : instances) {
+            keys.add(classInstancePair.getKey());
+        }
+        for (ClassInstancePair<?> spiedInstance : spiedInstances) {
+            keys.add(spiedInstance.getKey());
+        }
+        this.keys = Collections.unmodifiableSet(keys);
+        this.production = productionModules.isEmpty() ? null : RecordedModules.of(productionModules);
+    }
+
+    /**
+     * Whether a default is replaced by the explicit configuration.
+     */
+    boolean overrides(ClassInstancePair<?> classInstancePair) {
+        return keys.contains(classInstancePair.getKey());
+    }
+
+    /*
+     * Resolved outside of the lock, as two threads resolving the same
+     * configuration only waste a little work.
+     */
+    private static ResolvedMocks resolved(MockConfiguration configuration) {
+        ResolvedMocks resolved;
+        synchronized (RESOLVED) {
+            resolved = RESOLVED.get(configuration);
+        }
+        if (resolved == null) {
+            resolved = new ResolvedMocks(configuration);
+            synchronized (RESOLVED) {
+                RESOLVED.put(configuration, resolved);
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * The kind of spy to create for `c`, see `TestModule.withPrototypeSpies()`.
+     */
+    static MockKind spyKind(Class<?> c, boolean prototypeSpies, Collection<Class<?>> prototypeSpiedClasses) {
+        return prototypeSpies || prototypeSpiedClasses.contains(c) ? MockKind.PROTOTYPE_SPY : MockKind.SPY;
+    }
+
+    private static List<MockBinding<?>> resolve(Collection<Class<?>> classes, Function<Class<?>, MockKind> kinds,
+            Map<Class<?>, MockMode> mockModes, MockMode defaultMockMode, Map<Class<?>, MockEngine> mockEngines,
+            MockEngine defaultMockEngine) {
+        List<MockBinding<?>> bindings = new ArrayList<>(classes.size());
+        for (Class<?> c : classes) {
+            MockKind kind = kinds.apply(c);
+            bindings.add(new MockBinding<>(c, kind, mockModes.getOrDefault(c, defaultMockMode),
+                    engine(c, kind, mockEngines.getOrDefault(c, defaultMockEngine)), null));
+        }
+        return Collections.unmodifiableList(bindings);
+    }
+
+    /**
+     * The engine to create the mock or spy with: the requested one if it
+     * supports it, `MockFactory` otherwise.
+     */
+    static MockEngine engine(Class<?> c, MockKind kind, MockEngine requested) {
+        return requested.supports(c, kind) ? requested : MockFactory.shared();
+    }
+
+    /*
+     * What mocks and spies are resolved from, copied so that later changes to
+     * the module don't affect it.
+     */
+    private static final class MockConfiguration {
+
+        private final Set<Class<?>> mockedClasses;
+        private final Set<Class<?>> spiedClasses;
+        private final Set<Class<?>> prototypeSpiedClasses;
+        private final boolean prototypeSpies;
+        private final Map<Class<?>, MockMode> mockModes;
+        private final MockMode defaultMockMode;
+        private final Map<Class<?>, MockEngine> mockEngines;
+        private final MockEngine defaultMockEngine;
+        private final int hashCode;
+
+        private MockConfiguration(Collection<Class<?>> mockedClasses, Collection<Class<?>> spiedClasses,
+                Collection<Class<?>> prototypeSpiedClasses, boolean prototypeSpies, Map<Class<?>, MockMode> mockModes,
+                MockMode defaultMockMode, Map<Class<?>, MockEngine> mockEngines, MockEngine defaultMockEngine) {
+            this.mockedClasses = new LinkedHashSet<>(mockedClasses);
+            this.spiedClasses = new LinkedHashSet<>(spiedClasses);
+            this.prototypeSpiedClasses = new HashSet<>(prototypeSpiedClasses);
+            this.prototypeSpies = prototypeSpies;
+            this.mockModes = new HashMap<>(mockModes);
+            this.defaultMockMode = defaultMockMode;
+            this.mockEngines = new HashMap<>(mockEngines);
+            this.defaultMockEngine = defaultMockEngine;
+            this.hashCode = new HashCodeBuilder(17, 37)
+                    .append(this.mockedClasses)
+                    .append(this.spiedClasses)
+                    .append(this.prototypeSpiedClasses)
+                    .append(prototypeSpies)
+                    .append(this.mockModes)
+                    .append(defaultMockMode)
+                    .append(this.mockEngines)
+                    .append(defaultMockEngine)
+                    .toHashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof MockConfiguration)) {
+                return false;
+            }
+
+            MockConfiguration other = (MockConfiguration) obj;
+            return new EqualsBuilder()
+                    .append(mockedClasses, other.mockedClasses)
+                    .append(spiedClasses, other.spiedClasses)
+                    .append(prototypeSpiedClasses, other.prototypeSpiedClasses)
+                    .append(prototypeSpies, other.prototypeSpies)
+                    .append(mockModes, other.mockModes)
+                    .append(defaultMockMode, other.defaultMockMode)
+                    .append(mockEngines, other.mockEngines)
+                    .append(defaultMockEngine, other.defaultMockEngine)
+                    .isEquals();
+        }
+
+    }
+
+    private static final class ResolvedMocks {
+
+        private final List<MockBinding<?>> mocks;
+        private final List<MockBinding<?>> spies;
+        private final Set<Key<?>> keys = new HashSet<>();
+
+        private ResolvedMocks(MockConfiguration configuration) {
+            this.mocks = resolve(configuration.mockedClasses, c -> MockKind.MOCK, configuration.mockModes,
+                    configuration.defaultMockMode, configuration.mockEngines, configuration.defaultMockEngine);
+            this.spies = resolve(configuration.spiedClasses,
+                    c -> spyKind(c, configuration.prototypeSpies, configuration.prototypeSpiedClasses),
+                    configuration.mockModes, configuration.defaultMockMode, configuration.mockEngines,
+                    configuration.defaultMockEngine);
+            for (MockBinding<?> mock : mocks) {
+                keys.add(mock.key);
+            }
+            for (MockBinding<?> spy : spies) {
+                keys.add(spy.key);
+            }
+        }
+
+    }
+
+    /**
+     * A mock or spy to bind, with everything needed to create it.
+     */
+    static final class MockBinding<T> {
+
+        final Class<T> c;
+        final Key<T> key;
+        final MockKind kind;
+        final MockMode mode;
+        final MockEngine engine;
+        // The instance to spy on, `null` unless from `withSpiedInstance()`
+        final T instance;
+
+        private MockBinding(Class<T> c, MockKind kind, MockMode mode, MockEngine engine, T instance) {
+            this.c = c;
+            this.key = Key.get(c);
+            this.kind = kind;
+            this.mode = mode;
+            this.engine = engine;
+            this.instance = instance;
+        }
+
+        private static <T> MockBinding<T> ofInstance(ClassInstancePair<T> spiedInstance, MockMode mode) {
+            return new MockBinding<>(spiedInstance.c, MockKind.SPY, mode, MockFactory.shared(), spiedInstance.getInstance());
+        }
+
+    }
+
+}
@@ -0,0 +1,194 @@
+package com.collectivehealth.test.module;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A `BindingListener` accumulating timings across the JVM, to find out which
+ * mocks, spies and `TestModule` subclasses make a suite slow.
+ *
+ * The shared report writes its summary when the JVM shuts down: to the file
+ * named by the `testmodule.timing.file` system property if set, otherwise to
+ * standard error. Setting the `testmodule.timing` system property to `true`
+ * registers it with every `TestModule`, without any code change.
+ *
+ * i.e.
+ *
+ * <pre>
+ * new TestModule()
+ *         .withBindingListener(BindingTimingReport.shared())
+ *         .withMockedClasses(Session.class);
+ * </pre>
+ */
+
+public class BindingTimingReport implements BindingListener {
+
+    public static final String ENABLED_PROPERTY = "testmodule.timing";
+    public static final String FILE_PROPERTY = "testmodule.timing.file";
+
+    // Number of slowest mocked and spied classes listed in the summary
+    private static final int SLOWEST_CLASSES = 20;
+
+    private static volatile BindingTimingReport shared;
+
+    private final ConcurrentMap<Class<? extends TestModule>, ModuleTimings> modules = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, ClassTimings> classes = new ConcurrentHashMap<>();
+
+    /**
+     * The report shared across the JVM, written at shutdown.
+     */
+    public static BindingTimingReport shared() {
+        if (shared == null) {
+            synchronized (BindingTimingReport.class) {
+                if (shared == null) {
+                    BindingTimingReport report = new BindingTimingReport();
+                    Runtime.getRuntime().addShutdownHook(new Thread(report::writeAtShutdown, "testmodule-timing-report"));
+                    shared = report;
+                }
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Whether the shared report should be registered with every module.
+     */
+    static boolean isEnabledByDefault() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    @Override
+    public void phaseCompleted(Class<? extends TestModule> module, Phase phase, long nanos) {
+        ModuleTimings timings = modules.computeIfAbsent(module, m -> new ModuleTimings());
+        if (phase == Phase.INSTANCES) {
+            timings.configures.increment();
+        }
+        timings.phases.get(phase).add(nanos);
+    }
+
+    @Override
+    public void mockCreated(Class<? extends TestModule> module, Class<?> c, MockKind kind, long nanos) {
+        ClassTimings timings = classes.computeIfAbsent(c, k -> new ClassTimings());
+        timings.count.increment();
+        timings.total.add(nanos);
+        timings.max.accumulate(nanos);
+    }
+
+    /**
+     * Total time spent configuring modules of this subclass, in nanoseconds.
+     */
+    public long getTotalNanos(Class<? extends TestModule> module) {
+        ModuleTimings timings = modules.get(module);
+        return timings == null ? 0 : timings.total();
+    }
+
+    /**
+     * Total time spent creating mocks or spies of this class, in nanoseconds.
+     */
+    public long getCreationNanos(Class<?> c) {
+        ClassTimings timings = classes.get(c);
+        return timings == null ? 0 : timings.total.sum();
+    }
+
+    /**
+     * Write the summary: total time per `TestModule` subclass, by phase, then
+     * the slowest mocked and spied classes.
+     */
+    public void writeTo(PrintStream out) {
+        out.println("TestModule binding timings (ms)");
+        out.printf("%-60s %10s %10s %10s %10s %10s %10s %10s %10s %10s%n", "Module", "Configures", "Total", "Instances",
+                "Mocks", "Spies", "Defaults", "Production", "Auto mocks", "Setup");
+        modules.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<Class<? extends TestModule>, ModuleTimings> e) -> e.getValue().total()).reversed())
+                .forEach(e -> {
+                    ModuleTimings timings = e.getValue();
+                    out.printf("%-60s %10d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f%n", e.getKey().getName(),
+                            timings.configures.sum(), millis(timings.total()),
+                            millis(timings.phases.get(Phase.INSTANCES).sum()),
+                            millis(timings.phases.get(Phase.MOCKS).sum()),
+                            millis(timings.phases.get(Phase.SPIES).sum()),
+                            millis(timings.phases.get(Phase.DEFAULTS).sum()),
+                            millis(timings.phases.get(Phase.PRODUCTION).sum()),
+                            millis(timings.phases.get(Phase.AUTO_MOCKS).sum()),
+                            millis(timings.phases.get(Phase.ADDITIONAL_SETUP).sum()));
+                });
+
+        out.println();
+        out.println("Slowest mocked and spied classes (ms)");
+        out.printf("%-60s %10s %10s %10s%n", "Class", "Created", "Total", "Max");
+        classes.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<Class<?>, ClassTimings> e) -> e.getValue().total.sum()).reversed())
+                .limit(SLOWEST_CLASSES)
+                .forEach(e -> {
+                    ClassTimings timings = e.getValue();
+                    out.printf("%-60s %10d %10.1f %10.1f%n", e.getKey().getName(), timings.count.sum(),
+                            millis(timings.total.sum()), millis(timings.max.get()));
+                });
+        out.flush();
+    }
+
+    /**
+     * Forget everything recorded so far.
+     */
+    public void clear() {
+        modules.clear();
+        classes.clear();
+    }
+
+    private void writeAtShutdown() {
+        if (modules.isEmpty() && classes.isEmpty()) {
+            return;
+        }
+
+        String file = System.getProperty(FILE_PROPERTY);
+        if (file == null) {
+            writeTo(System.err);
+            return;
+        }
+        try (PrintStream out = new PrintStream(new FileOutputStream(file), false, "UTF-8")) {
+            writeTo(out);
+        } catch (IOException e) {
+            System.err.println("Unable to write TestModule binding timings to " + file + ": " + e);
+            writeTo(System.err);
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static class ModuleTimings {
+
+        private final LongAdder configures = new LongAdder();
+        private final Map<Phase, LongAdder> phases = new EnumMap<>(Phase.class);
+
+        private ModuleTimings() {
+            for (Phase phase : Phase.values()) {
+                phases.put(phase, new LongAdder());
+            }
+        }
+
+        private long total() {
+            return phases.values().stream().mapToLong(LongAdder::sum).sum();
+        }
+
+    }
+
+    private static class ClassTimings {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    }
+
+}
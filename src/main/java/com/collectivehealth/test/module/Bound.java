@@ -0,0 +1,20 @@
+package com.collectivehealth.test.module;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Bind the type of this field, annotated with the name if given, to the
+ * field's value, when the test is passed to
+ * `TestModule.withAnnotatedFields()`.
+ */
+
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Bound {
+
+    String name() default "";
+
+}
@@ -1,6 +1,9 @@
 package com.collectivehealth.test.module;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
+import com.google.inject.Key;
+import com.google.inject.name.Names;
 
 /**
  * Pairing a class to an assignable instance. Supports annotated name, if
@@ -13,6 +16,10 @@ public class ClassInstancePair<T> {
     protected String name; // Annotated name
     protected T instance;
 
+    // Derived from `c` and `name`, computed on first use
+    private Key<T> key;
+    private int hashCode;
+
     public ClassInstancePair(Class<T> c, T instance) {
         this.c = c;
         this.instance = instance;
@@ -24,23 +31,48 @@ public class ClassInstancePair<T> {
         this.instance = instance;
     }
 
+    /**
+     * The instance bound to `c`.
+     */
+    public T getInstance() {
+        return instance;
+    }
+
+    /**
+     * The Guice key this pair is bound to.
+     */
+    Key<T> getKey() {
+        Key<T> key = this.key;
+        if (key == null) {
+            key = StringUtils.isBlank(name) ? Key.get(c) : Key.get(c, Names.named(name));
+            this.key = key;
+        }
+        return key;
+    }
+
     /*
      * Only cares about `c` and `name`.
      */
     @Override
     public int hashCode() {
-        return new HashCodeBuilder(17, 37).append(c).append(name).toHashCode();
+        int hashCode = this.hashCode;
+        if (hashCode == 0) {
+            hashCode = new HashCodeBuilder(17, 37).append(c).append(name).toHashCode();
+            this.hashCode = hashCode;
+        }
+        return hashCode;
     }
 
     /*
-     * Only cares about `c` and `name`.
+     * Only cares about `c` and `name`, so that an eager and a lazy pair of the
+     * same class and name are considered the same binding.
      */
     @Override
     public boolean equals(Object obj) {
         if (this == obj) {
             return true;
         }
-        if (obj == null || getClass() != obj.getClass()) {
+        if (!(obj instanceof ClassInstancePair)) {
             return false;
         }
 
@@ -0,0 +1,288 @@
+package com.collectivehealth.test.module;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+
+/**
+ * An index of every class on the application class path, by package, built
+ * once per JVM for `PackageScan`. Directories and jars are walked once, jars
+ * listed in a jar manifest's `Class-Path` included, which is how Surefire may
+ * pass the test class path.
+ *
+ * The contents of jars can also be persisted, so that later JVMs only walk
+ * jars that have changed since (and directories, which are usually the
+ * project's own few classes). Enable by pointing the
+ * `testmodule.classindex.dir` system property to a directory.
+ */
+
+public class ClasspathIndex {
+
+    public static final String DIRECTORY_PROPERTY = "testmodule.classindex.dir";
+
+    private static final String CACHE_FILE = "classpath-index.txt";
+    private static final String JAR_HEADER = "# jar ";
+    private static final String CLASS_PATH_PREFIX = "# class-path ";
+
+    private static volatile ClasspathIndex shared;
+
+    // Package -> names of the classes in it, sorted so subpackages follow
+    private final NavigableMap<String, List<String>> packages = new TreeMap<>();
+    private final ConcurrentMap<PackageScan, List<Class<?>>> scans = new ConcurrentHashMap<>();
+    private int size;
+
+    /**
+     * Index these class path entries, reusing and updating the jar listings
+     * persisted in `cacheDirectory` if not `null`.
+     */
+    public ClasspathIndex(List<Path> classPath, Path cacheDirectory) throws IOException {
+        Map<String, JarListing> cached = cacheDirectory == null ? new HashMap<>() : readCache(cacheDirectory.resolve(CACHE_FILE));
+        Map<String, JarListing> listed = new HashMap<>();
+        boolean changed = false;
+
+        // Jars can add to the class path through their manifest
+        Set<Path> visited = new LinkedHashSet<>();
+        List<Path> pending = new ArrayList<>(classPath);
+        while (!pending.isEmpty()) {
+            Path root = pending.remove(0).toAbsolutePath().normalize();
+            if (!visited.add(root)) {
+                continue;
+            }
+            if (Files.isDirectory(root)) {
+                indexDirectory(root);
+            } else if (Files.isRegularFile(root)) {
+                JarListing listing = cached.get(root.toString());
+                if (listing == null || !listing.matches(root)) {
+                    listing = JarListing.of(root);
+                    changed = true;
+                }
+                listed.put(root.toString(), listing);
+                for (String className : listing.classNames) {
+                    add(className);
+                }
+                for (String entry : listing.classPath) {
+                    pending.add(resolve(root, entry));
+                }
+            }
+        }
+
+        if (cacheDirectory != null && (changed || !listed.keySet().equals(cached.keySet()))) {
+            writeCache(cacheDirectory, listed);
+        }
+    }
+
+    /**
+     * The index of the JVM's class path, built on first use.
+     */
+    public static ClasspathIndex shared() {
+        if (shared == null) {
+            synchronized (ClasspathIndex.class) {
+                if (shared == null) {
+                    String directory = System.getProperty(DIRECTORY_PROPERTY);
+                    try {
+                        shared = new ClasspathIndex(systemClassPath(), directory == null ? null : Paths.get(directory));
+                    } catch (IOException e) {
+                        throw new IllegalStateException("Unable to index the class path", e);
+                    }
+                }
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * The entries of the `java.class.path` system property.
+     */
+    public static List<Path> systemClassPath() {
+        List<Path> classPath = new ArrayList<>();
+        for (String entry : System.getProperty("java.class.path", "").split(File.pathSeparator)) {
+            if (!entry.isEmpty()) {
+                classPath.add(Paths.get(entry));
+            }
+        }
+        return classPath;
+    }
+
+    /**
+     * Names of the classes in this package, and its subpackages if asked.
+     */
+    public List<String> getClassNames(String packageName, boolean subpackages) {
+        List<String> classNames = new ArrayList<>(packages.getOrDefault(packageName, Collections.emptyList()));
+        if (subpackages) {
+            String prefix = packageName + ".";
+            for (Map.Entry<String, List<String>> entry : packages.tailMap(prefix, true).entrySet()) {
+                if (!entry.getKey().startsWith(prefix)) {
+                    break;
+                }
+                classNames.addAll(entry.getValue());
+            }
+        }
+        return classNames;
+    }
+
+    /**
+     * Number of indexed classes.
+     */
+    public int size() {
+        return size;
+    }
+
+    /*
+     * Scans are immutable values, so their results are kept for the lifetime
+     * of the index.
+     */
+    List<Class<?>> scan(PackageScan scan) {
+        return scans.computeIfAbsent(scan, s -> Collections.unmodifiableList(s.resolve(this)));
+    }
+
+    private void add(String className) {
+        int lastDot = className.lastIndexOf('.');
+        String packageName = lastDot < 0 ? "" : className.substring(0, lastDot);
+        packages.computeIfAbsent(packageName, p -> new ArrayList<>()).add(className);
+        size++;
+    }
+
+    private void indexDirectory(Path root) throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            files.filter(file -> isClassFile(file.toString()))
+                    .forEach(file -> add(className(root.relativize(file).toString().replace(File.separatorChar, '/'))));
+        }
+    }
+
+    private static Path resolve(Path jar, String entry) {
+        URI uri = jar.getParent().toUri().resolve(entry);
+        return "file".equals(uri.getScheme()) ? Paths.get(uri) : Paths.get(entry);
+    }
+
+    private static boolean isClassFile(String name) {
+        return name.endsWith(".class") && !name.endsWith("module-info.class") && !name.endsWith("package-info.class")
+                && !name.startsWith("META-INF/");
+    }
+
+    private static String className(String path) {
+        return path.substring(0, path.length() - ".class".length()).replace('/', '.');
+    }
+
+    private static Map<String, JarListing> readCache(Path file) {
+        Map<String, JarListing> listings = new HashMap<>();
+        if (!Files.isRegularFile(file)) {
+            return listings;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            JarListing listing = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(JAR_HEADER)) {
+                    // # jar <size> <last modified> <path>
+                    String[] header = line.substring(JAR_HEADER.length()).split(" ", 3);
+                    listing = new JarListing(Long.parseLong(header[0]), Long.parseLong(header[1]), new ArrayList<>(),
+                            new ArrayList<>());
+                    listings.put(header[2], listing);
+                } else if (listing != null && line.startsWith(CLASS_PATH_PREFIX)) {
+                    listing.classPath.add(line.substring(CLASS_PATH_PREFIX.length()));
+                } else if (listing != null && !line.isEmpty()) {
+                    listing.classNames.add(line);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Unreadable, start over
+            listings.clear();
+        }
+        return listings;
+    }
+
+    private static void writeCache(Path directory, Map<String, JarListing> listings) throws IOException {
+        // Written aside then moved, as several forks may share the directory
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, CACHE_FILE, ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, JarListing> entry : listings.entrySet()) {
+                JarListing listing = entry.getValue();
+                writer.write(JAR_HEADER + listing.size + " " + listing.lastModified + " " + entry.getKey() + "\n");
+                for (String classPathEntry : listing.classPath) {
+                    writer.write(CLASS_PATH_PREFIX + classPathEntry + "\n");
+                }
+                for (String className : listing.classNames) {
+                    writer.write(className + "\n");
+                }
+            }
+        }
+        Files.move(temporary, directory.resolve(CACHE_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /*
+     * The classes of a jar, and the entries of its manifest's `Class-Path`, as
+     * of its size and modification time.
+     */
+    private static class JarListing {
+
+        private final long size;
+        private final long lastModified;
+        private final List<String> classNames;
+        private final List<String> classPath;
+
+        private JarListing(long size, long lastModified, List<String> classNames, List<String> classPath) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.classNames = classNames;
+            this.classPath = classPath;
+        }
+
+        private static JarListing of(Path path) throws IOException {
+            List<String> classNames = new ArrayList<>();
+            List<String> classPath = new ArrayList<>();
+            try (JarFile jar = new JarFile(path.toFile())) {
+                Manifest manifest = jar.getManifest();
+                String manifestClassPath = manifest == null ? null : manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH);
+                if (manifestClassPath != null && !manifestClassPath.trim().isEmpty()) {
+                    classPath.addAll(Arrays.asList(manifestClassPath.trim().split("\\s+")));
+                }
+                Enumeration<JarEntry> entries = jar.entries();
+                while (entries.hasMoreElements()) {
+                    String name = entries.nextElement().getName();
+                    if (isClassFile(name)) {
+                        classNames.add(className(name));
+                    }
+                }
+            } catch (IOException e) {
+                // Not a jar, i.e. a stray file on the class path
+            }
+            return new JarListing(Files.size(path), Files.getLastModifiedTime(path).toMillis(), classNames, classPath);
+        }
+
+        private boolean matches(Path path) {
+            try {
+                return size == Files.size(path) && lastModified == Files.getLastModifiedTime(path).toMillis();
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.collectivehealth.test.module;
+
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.logging.Logger;
+import com.google.inject.ConfigurationException;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.MembersInjector;
+import com.google.inject.Provider;
+import com.google.inject.Stage;
+import com.google.inject.TypeLiteral;
+import com.google.inject.spi.Dependency;
+import com.google.inject.spi.InjectionPoint;
+
+/**
+ * The direct dependencies Guice would inject into a class, found through its
+ * `InjectionPoint`s. The reflection only happens once per class, and is then
+ * cached for the lifetime of the class.
+ */
+
+class DependencyGraph {
+
+    private static final ClassValue<Set<Key<?>>> DEPENDENCIES = new ClassValue<Set<Key<?>>>() {
+
+        @Override
+        protected Set<Key<?>> computeValue(Class<?> type) {
+            return Collections.unmodifiableSet(findDependencies(type));
+        }
+
+    };
+
+    private DependencyGraph() {
+    }
+
+    /**
+     * Keys injected into the constructor, methods and fields of `type`.
+     * Provider dependencies are reported as the key they provide.
+     */
+    static Set<Key<?>> getDependencies(Class<?> type) {
+        return DEPENDENCIES.get(type);
+    }
+
+    /**
+     * Whether a dependency of this type could be replaced by a mock.
+     */
+    static boolean isMockable(Class<?> type) {
+        return !type.isPrimitive() && !type.isArray() && !type.isEnum() && !Modifier.isFinal(type.getModifiers())
+                && !isBuiltIn(type);
+    }
+
+    /**
+     * Whether Guice binds this type on its own.
+     */
+    static boolean isBuiltIn(Class<?> type) {
+        return type == Injector.class || type == Stage.class || type == Logger.class || type == MembersInjector.class
+                || type == TypeLiteral.class;
+    }
+
+    private static Set<Key<?>> findDependencies(Class<?> type) {
+        Set<Key<?>> dependencies = new LinkedHashSet<>();
+        // Nothing Guice would inject into
+        if (type.isInterface() || type.isPrimitive() || type.isArray()) {
+            return dependencies;
+        }
+
+        Set<InjectionPoint> injectionPoints = new LinkedHashSet<>();
+        if (!Modifier.isAbstract(type.getModifiers())) {
+            try {
+                injectionPoints.add(InjectionPoint.forConstructorOf(type));
+            } catch (ConfigurationException e) {
+                // No injectable constructor, Guice will report it if needed
+            }
+        }
+        try {
+            injectionPoints.addAll(InjectionPoint.forInstanceMethodsAndFields(type));
+        } catch (ConfigurationException e) {
+            Set<InjectionPoint> partial = e.getPartialValue();
+            injectionPoints.addAll(partial);
+        }
+
+        for (InjectionPoint injectionPoint : injectionPoints) {
+            for (Dependency<?> dependency : injectionPoint.getDependencies()) {
+                dependencies.add(unwrapProvider(dependency.getKey()));
+            }
+        }
+        return dependencies;
+    }
+
+    private static Key<?> unwrapProvider(Key<?> key) {
+        Class<?> rawType = key.getTypeLiteral().getRawType();
+        Type type = key.getTypeLiteral().getType();
+        if ((rawType != Provider.class && rawType != javax.inject.Provider.class) || !(type instanceof ParameterizedType)) {
+            return key;
+        }
+
+        Type provided = ((ParameterizedType) type).getActualTypeArguments()[0];
+        if (key.getAnnotation() != null) {
+            return Key.get(provided, key.getAnnotation());
+        }
+        if (key.getAnnotationType() != null) {
+            return Key.get(provided, key.getAnnotationType());
+        }
+        return Key.get(provided);
+    }
+
+}
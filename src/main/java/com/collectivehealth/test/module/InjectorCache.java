@@ -0,0 +1,133 @@
+package com.collectivehealth.test.module;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+/**
+ * A bounded cache of injectors built from `TestModule`s, so that tests
+ * creating the same configuration over and over only pay for the injector
+ * once.
+ *
+ * Modules are keyed by their subclass, their explicit instances, and their
+ * mocked and spied classes. When a cached injector is handed out again, every
+ * mock and spy its module created (through `withMockedClasses()`,
+ * `withSpiedClasses()`, `createClassMockPair()` and `createClassSpyPair()`) is
+ * reset first, so stubbing and recorded invocations never leak from one test
+ * to the next. Mocks built by hand in `getDefaultInstances()` keep their
+ * stubbing, and only have their invocations cleared. Instances bound through
+ * `withInstance()`, or real defaults, are shared as they are; modules binding
+ * mutable real instances should opt out with
+ * `TestModule.withoutInjectorCaching()`.
+ *
+ * i.e.
+ *
+ * <pre>
+ * &#64;Before
+ * public void setUp() {
+ *     injector = InjectorCache.shared().getInjector(new ExampleTestModule()
+ *             .withMockedClasses(Session.class));
+ * }
+ * </pre>
+ *
+ * The cache is not meant to be shared by tests running in parallel with the
+ * same configuration, as they would reset each other's mocks.
+ */
+
+public class InjectorCache {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 64;
+
+    private static final InjectorCache SHARED = new InjectorCache(DEFAULT_MAXIMUM_SIZE);
+
+    private final Map<Object, CachedInjector> injectors;
+
+    public InjectorCache(int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Maximum size must be positive: " + maximumSize);
+        }
+
+        // Access-ordered, evicting the least recently used injector
+        this.injectors = new LinkedHashMap<Object, CachedInjector>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, CachedInjector> eldest) {
+                return size() > maximumSize;
+            }
+
+        };
+    }
+
+    /**
+     * The cache shared across the JVM, holding up to `DEFAULT_MAXIMUM_SIZE`
+     * injectors.
+     */
+    public static InjectorCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Return an injector for the module, reusing (and resetting the mocks of)
+     * a cached one if an equivalent module has been seen before.
+     */
+    public Injector getInjector(TestModule module) {
+        if (!module.isCacheable()) {
+            return Guice.createInjector(module);
+        }
+
+        Object fingerprint = module.fingerprint();
+        CachedInjector cached;
+        synchronized (this) {
+            cached = injectors.get(fingerprint);
+        }
+        if (cached != null) {
+            cached.resetMocks();
+            return cached.injector;
+        }
+
+        // Built outside of the lock, configuring a module can be slow
+        CachedInjector created;
+        synchronized (module) {
+            Injector injector = Guice.createInjector(module);
+            created = new CachedInjector(injector, module.getCreatedMocks());
+        }
+        synchronized (this) {
+            injectors.put(fingerprint, created);
+        }
+        return created.injector;
+    }
+
+    /**
+     * Number of cached injectors.
+     */
+    public synchronized int size() {
+        return injectors.size();
+    }
+
+    /**
+     * Drop every cached injector.
+     */
+    public synchronized void clear() {
+        injectors.clear();
+    }
+
+    private static class CachedInjector {
+
+        private final Injector injector;
+        private final MockRecorder mocks;
+
+        private CachedInjector(Injector injector, MockRecorder mocks) {
+            this.injector = injector;
+            this.mocks = mocks;
+        }
+
+        private void resetMocks() {
+            mocks.resetAll();
+        }
+
+    }
+
+}
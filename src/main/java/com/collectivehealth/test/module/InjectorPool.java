@@ -0,0 +1,181 @@
+package com.collectivehealth.test.module;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+/**
+ * Injectors for one `TestModule` configuration, built ahead of time on
+ * background threads, so that tests take a fresh injector instead of building
+ * it themselves. Every injector taken is replaced by a new one right away,
+ * keeping up to `depth` injectors built or being built.
+ *
+ * Mocks and spies are created with their injector, except those the module
+ * creates on first use: with `withLazyMocking()`, or per thread with
+ * `withThreadScopedMocks()`. Those are still created by the test.
+ *
+ * The module is frozen, so it can't be changed once handed to the pool.
+ *
+ * i.e.
+ *
+ * <pre>
+ * private static final InjectorPool POOL = new InjectorPool(new ExampleTestModule()
+ *         .withMockedClasses(Session.class), 4);
+ *
+ * &#64;Before
+ * public void setUp() {
+ *     injector = POOL.take();
+ * }
+ *
+ * &#64;AfterClass
+ * public static void tearDown() {
+ *     POOL.close();
+ * }
+ * </pre>
+ */
+
+public class InjectorPool implements AutoCloseable {
+
+    private static final AtomicInteger POOLS = new AtomicInteger();
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    private final TestModule module;
+    private final BlockingQueue<Future<Injector>> injectors;
+    // Taken, but not built yet, so cancelled on close as well
+    private final Set<Future<Injector>> waiting = new HashSet<>();
+    private final ExecutorService executor;
+    private volatile boolean closed;
+
+    /**
+     * A pool keeping `depth` injectors ahead, built by up to as many threads
+     * as there are spare processors.
+     */
+    public InjectorPool(TestModule module, int depth) {
+        this(module, depth, Math.max(1, Math.min(depth, Runtime.getRuntime().availableProcessors() - 1)));
+    }
+
+    /**
+     * A pool keeping `depth` injectors ahead, built by `threads` background
+     * threads.
+     */
+    public InjectorPool(TestModule module, int depth, int threads) {
+        if (depth < 1 || threads < 1) {
+            throw new IllegalArgumentException("Depth and threads must be positive: " + depth + ", " + threads);
+        }
+        this.module = module.freeze();
+        this.injectors = new LinkedBlockingQueue<>(depth);
+        this.executor = Executors.newFixedThreadPool(threads, daemonThreads("testmodule-injector-pool-" + POOLS.incrementAndGet()));
+        for (int i = 0; i < depth; i++) {
+            injectors.add(build());
+        }
+    }
+
+    /**
+     * Take a fresh injector, waiting for it if it isn't built yet, and start
+     * building its replacement. Failures to build it are thrown here, as they
+     * would be by `Guice.createInjector()`. Closing the pool while waiting
+     * throws an `IllegalStateException`.
+     */
+    public Injector take() {
+        Future<Injector> next;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("InjectorPool has been closed.");
+            }
+            next = injectors.remove();
+            injectors.add(build());
+            waiting.add(next);
+        }
+
+        try {
+            return next.get();
+        } catch (CancellationException e) {
+            throw new IllegalStateException("InjectorPool has been closed.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an injector.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            synchronized (this) {
+                waiting.remove(next);
+            }
+        }
+    }
+
+    /**
+     * The frozen module injectors are built from.
+     */
+    public TestModule getModule() {
+        return module;
+    }
+
+    /**
+     * Whether a `take()` is waiting for an injector being built.
+     */
+    synchronized boolean isWaiting() {
+        return !waiting.isEmpty();
+    }
+
+    /**
+     * Stop building injectors, dropping those not taken yet, and wait for the
+     * builds in progress to stop.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (Future<Injector> injector : injectors) {
+                injector.cancel(true);
+            }
+            injectors.clear();
+            for (Future<Injector> injector : waiting) {
+                injector.cancel(true);
+            }
+        }
+
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Future<Injector> build() {
+        return executor.submit(() -> Guice.createInjector(module));
+    }
+
+    /*
+     * Daemon threads, so a pool that isn't closed doesn't keep the JVM alive.
+     */
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger threads = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+}
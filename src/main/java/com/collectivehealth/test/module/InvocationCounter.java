@@ -0,0 +1,66 @@
+package com.collectivehealth.test.module;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.mockito.Mockito;
+import org.mockito.invocation.Invocation;
+import org.mockito.listeners.InvocationListener;
+import org.mockito.listeners.MethodInvocationReport;
+import org.mockito.mock.MockCreationSettings;
+
+/**
+ * Counts the invocations of one `MockMode.COUNTING` mock or spy per method,
+ * with striped counters, so that threads calling it at once don't contend.
+ */
+
+class InvocationCounter implements InvocationListener {
+
+    private final ConcurrentMap<Method, LongAdder> counts = new ConcurrentHashMap<>();
+
+    /**
+     * The counter of a `MockMode.COUNTING` mock or spy, or `null` if it
+     * doesn't have one.
+     */
+    static InvocationCounter of(Object mock) {
+        if (mock == null || !Mockito.mockingDetails(mock).isMock()) {
+            return null;
+        }
+        MockCreationSettings<?> settings = Mockito.mockingDetails(mock).getMockCreationSettings();
+        for (InvocationListener listener : settings.getInvocationListeners()) {
+            if (listener instanceof InvocationCounter) {
+                return (InvocationCounter) listener;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void reportInvocation(MethodInvocationReport report) {
+        if (report.getInvocation() instanceof Invocation) {
+            Method method = ((Invocation) report.getInvocation()).getMethod();
+            LongAdder count = counts.get(method);
+            if (count == null) {
+                count = counts.computeIfAbsent(method, m -> new LongAdder());
+            }
+            count.increment();
+        }
+    }
+
+    long count(String methodName) {
+        long count = 0;
+        for (Map.Entry<Method, LongAdder> entry : counts.entrySet()) {
+            if (entry.getKey().getName().equals(methodName)) {
+                count += entry.getValue().sum();
+            }
+        }
+        return count;
+    }
+
+    void clear() {
+        counts.clear();
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.collectivehealth.test.module;
+
+import java.util.function.Supplier;
+
+/**
+ * Pairing a class to a supplier of an assignable instance. The supplier is
+ * only called when the instance is actually needed, i.e. when the pair is a
+ * default that hasn't been overridden by the test. Supports annotated name, if
+ * applicable.
+ */
+
+public class LazyClassInstancePair<T> extends ClassInstancePair<T> {
+
+    protected Supplier<T> supplier;
+
+    public LazyClassInstancePair(Class<T> c, Supplier<T> supplier) {
+        super(c, null);
+        this.supplier = supplier;
+    }
+
+    public LazyClassInstancePair(Class<T> c, String name, Supplier<T> supplier) {
+        super(c, name, null);
+        this.supplier = supplier;
+    }
+
+    /*
+     * Resolves the supplier once, and keeps the result.
+     */
+    @Override
+    public synchronized T getInstance() {
+        if (instance == null) {
+            instance = supplier.get();
+        }
+        return instance;
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.collectivehealth.test.module;
+
+import java.util.function.Supplier;
+import com.google.inject.Provider;
+
+/**
+ * A provider that builds its instance on the first `get()`, and returns that
+ * same instance from then on.
+ */
+
+class MemoizingProvider<T> implements Provider<T> {
+
+    private final Supplier<T> supplier;
+    private volatile T instance;
+
+    MemoizingProvider(Supplier<T> supplier) {
+        this.supplier = supplier;
+    }
+
+    @Override
+    public T get() {
+        T result = instance;
+        if (result == null) {
+            synchronized (this) {
+                result = instance;
+                if (result == null) {
+                    result = supplier.get();
+                    instance = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Whether the instance has been built yet.
+     */
+    boolean isResolved() {
+        return instance != null;
+    }
+
+}
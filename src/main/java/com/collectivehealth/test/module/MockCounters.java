@@ -0,0 +1,50 @@
+package com.collectivehealth.test.module;
+
+/**
+ * Count-based verification of `MockMode.COUNTING` mocks and spies, and of
+ * proxy mocks, which count their invocations per method rather than record
+ * them.
+ *
+ * i.e.
+ *
+ * <pre>
+ * MockCounters.verify(injector.getInstance(Cache.class), "get", THREADS * CALLS);
+ * </pre>
+ *
+ * Calls made while stubbing with `Mockito.when(mock.method())` are counted
+ * too. Stub with `Mockito.doReturn().when(mock).method()` to keep counts
+ * exact.
+ */
+
+public final class MockCounters {
+
+    private MockCounters() {
+    }
+
+    /**
+     * How many times methods of this name (all overloads) have been called on
+     * the mock or spy.
+     */
+    public static long invocationCount(Object mock, String methodName) {
+        if (ProxyMocks.isMock(mock)) {
+            return ProxyMocks.invocationCount(mock, methodName);
+        }
+        InvocationCounter counter = InvocationCounter.of(mock);
+        if (counter == null) {
+            throw new IllegalArgumentException("Not a counting mock: " + mock + ", see MockMode.COUNTING.");
+        }
+        return counter.count(methodName);
+    }
+
+    /**
+     * Check that methods of this name have been called exactly `times` times
+     * on the mock or spy.
+     */
+    public static void verify(Object mock, String methodName, long times) {
+        long count = invocationCount(mock, methodName);
+        if (count != times) {
+            throw new AssertionError("Wanted " + times + " invocations of " + methodName + "() but got " + count + ".");
+        }
+    }
+
+}
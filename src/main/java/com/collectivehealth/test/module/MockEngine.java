@@ -0,0 +1,39 @@
+package com.collectivehealth.test.module;
+
+/**
+ * Creates the mocks and spies of a `TestModule`. `MockFactory` is the default,
+ * Mockito-based engine, and `ProxyMockEngine` a lightweight one for
+ * interfaces. Select one through `TestModule.withMockEngine()`; whatever an
+ * engine doesn't support falls back to `MockFactory`.
+ */
+
+public interface MockEngine {
+
+    /**
+     * Whether this engine can create this kind of test double of `c`.
+     */
+    boolean supports(Class<?> c, MockKind kind);
+
+    /**
+     * Create a new, independent test double of `c`.
+     */
+    <T> T create(Class<T> c, MockKind kind, MockMode mode);
+
+    /**
+     * Whether `o` was created by this engine.
+     */
+    boolean isMock(Object o);
+
+    /**
+     * Forget the stubbing and invocations of a test double created by this
+     * engine.
+     */
+    void reset(Object mock);
+
+    /**
+     * Forget the invocations of a test double created by this engine, but
+     * keep its stubbing.
+     */
+    void clearInvocations(Object mock);
+
+}
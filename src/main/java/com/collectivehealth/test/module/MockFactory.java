@@ -0,0 +1,232 @@
+package com.collectivehealth.test.module;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.mockito.Mockito;
+
+/**
+ * JVM-wide factory for the mocks and spies created by `TestModule`.
+ *
+ * Mockito generates one proxy class per mocked type, but only keeps it softly
+ * reachable, so a long suite under memory pressure may end up generating and
+ * loading the same class over and over. This factory keeps one prototype mock
+ * per type alive, which pins the generated class for the lifetime of the JVM.
+ * Every `mock()` and `spy()` call still returns a new, independent instance.
+ *
+ * i.e.
+ *
+ * <pre>
+ * &#64;BeforeClass
+ * public static void prewarm() {
+ *     MockFactory.shared().prewarm(Session.class, Socket.class);
+ * }
+ * </pre>
+ */
+
+public class MockFactory implements MockEngine {
+
+    private static final MockFactory SHARED = new MockFactory();
+
+    // Mocked type -> a mock that is never handed out, and keeps the generated
+    // class strongly reachable.
+    private final ConcurrentMap<Class<?>, Object> prototypes = new ConcurrentHashMap<>();
+    // Spied type -> the real instance its prototype spies copy
+    private final ConcurrentMap<Class<?>, MemoizingProvider<Object>> realPrototypes = new ConcurrentHashMap<>();
+
+    /**
+     * The factory shared by every `TestModule` in the JVM.
+     */
+    public static MockFactory shared() {
+        return SHARED;
+    }
+
+    /**
+     * Create a new mock, reusing the proxy class generated for `c`.
+     */
+    public <T> T mock(Class<T> c) {
+        prepare(c);
+        return Mockito.mock(c);
+    }
+
+    /**
+     * Create a new mock in the given mode, reusing the proxy class generated
+     * for `c`.
+     */
+    public <T> T mock(Class<T> c, MockMode mode) {
+        if (mode == MockMode.RECORDING) {
+            return mock(c);
+        }
+        prepare(c);
+        return Mockito.mock(c, mode.apply(Mockito.withSettings()));
+    }
+
+    /**
+     * Create a new spy, reusing the proxy class generated for `c`.
+     */
+    public <T> T spy(Class<T> c) {
+        prepare(c);
+        return Mockito.spy(c);
+    }
+
+    /**
+     * Create a new spy in the given mode, reusing the proxy class generated
+     * for `c`.
+     */
+    public <T> T spy(Class<T> c, MockMode mode) {
+        if (mode == MockMode.RECORDING) {
+            return spy(c);
+        }
+        prepare(c);
+        // Same settings as `Mockito.spy()`
+        return Mockito.mock(c, mode.apply(Mockito.withSettings()
+                .useConstructor()
+                .defaultAnswer(Mockito.CALLS_REAL_METHODS)));
+    }
+
+    /**
+     * Create a new spy of this instance, copying its field state into the spy
+     * without running any constructor. The instance itself is left alone.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T spy(T instance, MockMode mode) {
+        Class<T> c = (Class<T>) instance.getClass();
+        prepare(c);
+        // Same settings as `Mockito.spy(instance)`
+        return Mockito.mock(c, mode.apply(Mockito.withSettings()
+                .spiedInstance(instance)
+                .defaultAnswer(Mockito.CALLS_REAL_METHODS)));
+    }
+
+    /**
+     * Create a new spy copying the field state of a real instance of `c`,
+     * built with its no-arg constructor on the first call only. Fields are
+     * copied shallowly, so objects they reference, i.e. warmed caches, are
+     * shared by every prototype spy of `c`.
+     */
+    public <T> T prototypeSpy(Class<T> c, MockMode mode) {
+        return spy(c.cast(realPrototype(c).get()), mode);
+    }
+
+    /*
+     * The constructor can be slow, so it runs in the class's own holder rather
+     * than while the map is locked.
+     */
+    private MemoizingProvider<Object> realPrototype(Class<?> c) {
+        MemoizingProvider<Object> prototype = realPrototypes.get(c);
+        if (prototype == null) {
+            MemoizingProvider<Object> created = new MemoizingProvider<>(() -> construct(c));
+            prototype = realPrototypes.putIfAbsent(c, created);
+            if (prototype == null) {
+                prototype = created;
+            }
+        }
+        return prototype;
+    }
+
+    private static Object construct(Class<?> c) {
+        try {
+            Constructor<?> constructor = c.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor.newInstance();
+        } catch (NoSuchMethodException | InstantiationException | IllegalAccessException e) {
+            throw new IllegalArgumentException("Unable to build a prototype of " + c.getName()
+                    + ", a prototype spy needs a no-arg constructor.", e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalArgumentException("Unable to build a prototype of " + c.getName() + ".", e.getCause());
+        }
+    }
+
+    /*
+     * Mockito can mock and spy anything it can subclass.
+     */
+    @Override
+    public boolean supports(Class<?> c, MockKind kind) {
+        return true;
+    }
+
+    @Override
+    public <T> T create(Class<T> c, MockKind kind, MockMode mode) {
+        switch (kind) {
+        case SPY:
+            return spy(c, mode);
+        case PROTOTYPE_SPY:
+            return prototypeSpy(c, mode);
+        default:
+            return mock(c, mode);
+        }
+    }
+
+    @Override
+    public boolean isMock(Object o) {
+        return Mockito.mockingDetails(o).isMock();
+    }
+
+    @Override
+    public void reset(Object mock) {
+        Mockito.reset(mock);
+        clearCounter(mock);
+    }
+
+    @Override
+    public void clearInvocations(Object mock) {
+        Mockito.clearInvocations(mock);
+        clearCounter(mock);
+    }
+
+    private static void clearCounter(Object mock) {
+        InvocationCounter counter = InvocationCounter.of(mock);
+        if (counter != null) {
+            counter.clear();
+        }
+    }
+
+    /**
+     * Generate the proxy classes for these classes ahead of time.
+     */
+    public MockFactory prewarm(Class<?>... classes) {
+        return prewarm(Arrays.asList(classes));
+    }
+
+    /**
+     * Generate the proxy classes for these classes ahead of time, one after
+     * the other. Mockito generates mock classes under a single lock, so
+     * generating them from several threads at once wouldn't be any faster.
+     */
+    public MockFactory prewarm(Collection<Class<?>> classes) {
+        for (Class<?> c : classes) {
+            prepare(c);
+        }
+        return this;
+    }
+
+    /**
+     * Whether the proxy class for `c` has already been generated through this
+     * factory.
+     */
+    public boolean isPrepared(Class<?> c) {
+        return prototypes.containsKey(c);
+    }
+
+    /**
+     * Release every pinned proxy class and real prototype, i.e. when the
+     * mocked classes' class loader is about to be discarded.
+     */
+    public void clear() {
+        prototypes.clear();
+        realPrototypes.clear();
+    }
+
+    private void prepare(Class<?> c) {
+        // Deliberately not `computeIfAbsent()`, class generation can be slow
+        // and shouldn't block other types. A lost race only costs one extra
+        // mock, as Mockito caches the generated class itself.
+        if (!prototypes.containsKey(c)) {
+            prototypes.putIfAbsent(c, Mockito.mock(c));
+        }
+    }
+
+}
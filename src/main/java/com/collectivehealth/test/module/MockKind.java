@@ -0,0 +1,25 @@
+package com.collectivehealth.test.module;
+
+/**
+ * How `TestModule` creates a test double.
+ */
+
+public enum MockKind {
+
+    /**
+     * `Mockito.mock()`, every method stubbed out.
+     */
+    MOCK,
+
+    /**
+     * `Mockito.spy()`, every method calling the real one unless stubbed.
+     */
+    SPY,
+
+    /**
+     * A spy copying the field state of a real instance built once per JVM, so
+     * that the constructor doesn't run again for every spy.
+     */
+    PROTOTYPE_SPY
+
+}
@@ -0,0 +1,273 @@
+package com.collectivehealth.test.module;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.junit.rules.TestRule;
+import org.junit.runners.model.Statement;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+
+/**
+ * Tracks, through weak references, every injector built from a `TestModule`
+ * and every mock and spy the module created or was handed as a default, to
+ * find what keeps them reachable once their tests are done. Reports list, per
+ * `TestModule` subclass, how many are still retained after a full GC, along
+ * with the JVM's heap and metaspace usage and how they grew since the
+ * previous report.
+ *
+ * Reports are written after each test class using the rule, and for the
+ * whole JVM when it shuts down: to the file named by the
+ * `testmodule.leaks.file` system property if set, appended to, otherwise to
+ * standard error. Setting the `testmodule.leaks` system property to `true`
+ * installs the shared tracker in every `TestModule`, without any code change.
+ *
+ * i.e.
+ *
+ * <pre>
+ * &#64;ClassRule
+ * public static final TestRule LEAKS = MockLeakTracker.shared().reportAfterClass();
+ * </pre>
+ *
+ * Each report triggers a full GC, so the tracker is meant for investigating
+ * leaks rather than for every build.
+ */
+
+public class MockLeakTracker {
+
+    public static final String ENABLED_PROPERTY = "testmodule.leaks";
+    public static final String FILE_PROPERTY = "testmodule.leaks.file";
+
+    private static volatile MockLeakTracker shared;
+
+    private final ConcurrentMap<Class<? extends TestModule>, Tracked> modules = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+    // Usage at the previous report, in bytes
+    private long lastHeap;
+    private long lastMetaspace;
+
+    /**
+     * The tracker shared across the JVM, reported at shutdown.
+     */
+    public static MockLeakTracker shared() {
+        if (shared == null) {
+            synchronized (MockLeakTracker.class) {
+                if (shared == null) {
+                    MockLeakTracker tracker = new MockLeakTracker();
+                    Runtime.getRuntime().addShutdownHook(new Thread(() -> tracker.report("JVM shutdown"),
+                            "testmodule-leak-tracker"));
+                    shared = tracker;
+                }
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Whether the shared tracker should be installed in every module.
+     */
+    static boolean isEnabledByDefault() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    /**
+     * Track a mock or spy created by, or handed to, this module.
+     */
+    void trackMock(Class<? extends TestModule> module, Object mock) {
+        Tracked tracked = tracked(module);
+        tracked.mocks.add(new TrackedReference(mock, collected, tracked.mocks));
+        tracked.createdMocks.increment();
+    }
+
+    /**
+     * An object whose injection tracks the injector built from this module.
+     */
+    Object injectorTracker(Class<? extends TestModule> module) {
+        return new InjectorTracker(this, module);
+    }
+
+    private Tracked tracked(Class<? extends TestModule> module) {
+        return modules.computeIfAbsent(module, m -> new Tracked());
+    }
+
+    /**
+     * Number of injectors built from this module that are still reachable.
+     * Only accurate right after a GC.
+     */
+    public int getRetainedInjectors(Class<? extends TestModule> module) {
+        expunge();
+        Tracked tracked = modules.get(module);
+        return tracked == null ? 0 : tracked.injectors.size();
+    }
+
+    /**
+     * Number of mocks and spies of this module that are still reachable. Only
+     * accurate right after a GC.
+     */
+    public int getRetainedMocks(Class<? extends TestModule> module) {
+        expunge();
+        Tracked tracked = modules.get(module);
+        return tracked == null ? 0 : tracked.mocks.size();
+    }
+
+    /**
+     * A class rule reporting what is still retained once the class's tests
+     * are done.
+     */
+    public TestRule reportAfterClass() {
+        return (base, description) -> new Statement() {
+
+            @Override
+            public void evaluate() throws Throwable {
+                try {
+                    base.evaluate();
+                } finally {
+                    report(description.getDisplayName());
+                }
+            }
+
+        };
+    }
+
+    /**
+     * Collect garbage, then write what is still retained, per module.
+     */
+    public synchronized void writeTo(PrintStream out, String title) {
+        collectGarbage();
+        expunge();
+        long heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        long metaspace = metaspaceUsed();
+
+        out.println("TestModule retained after " + title);
+        out.printf("%-80s %10s %10s %10s %10s%n", "Module", "Injectors", "Built", "Mocks", "Created");
+        modules.entrySet().stream()
+                .sorted(Comparator.comparingInt((Map.Entry<Class<? extends TestModule>, Tracked> e) -> e.getValue().mocks.size())
+                        .reversed())
+                .forEach(e -> {
+                    Tracked tracked = e.getValue();
+                    out.printf("%-80s %10d %10d %10d %10d%n", e.getKey().getName(), tracked.injectors.size(),
+                            tracked.builtInjectors.sum(), tracked.mocks.size(), tracked.createdMocks.sum());
+                });
+        out.printf("Heap used: %.1f MB (%+.1f MB), metaspace used: %.1f MB (%+.1f MB), %d classes loaded%n", megabytes(heap),
+                megabytes(heap - lastHeap), megabytes(metaspace), megabytes(metaspace - lastMetaspace),
+                ManagementFactory.getClassLoadingMXBean().getLoadedClassCount());
+        out.flush();
+        lastHeap = heap;
+        lastMetaspace = metaspace;
+    }
+
+    /**
+     * Forget everything tracked so far.
+     */
+    public synchronized void clear() {
+        modules.clear();
+        expunge();
+    }
+
+    private void report(String title) {
+        if (modules.isEmpty()) {
+            return;
+        }
+
+        String file = System.getProperty(FILE_PROPERTY);
+        if (file == null) {
+            writeTo(System.err, title);
+            return;
+        }
+        try (PrintStream out = new PrintStream(new FileOutputStream(file, true), false, "UTF-8")) {
+            writeTo(out, title);
+        } catch (IOException e) {
+            System.err.println("Unable to write TestModule leak report to " + file + ": " + e);
+            writeTo(System.err, title);
+        }
+    }
+
+    private void expunge() {
+        Reference<?> reference;
+        while ((reference = collected.poll()) != null) {
+            ((TrackedReference) reference).owner.remove(reference);
+        }
+    }
+
+    /*
+     * Weak references are only cleared by a GC, and one `System.gc()` doesn't
+     * always get them all.
+     */
+    private static void collectGarbage() {
+        for (int i = 0; i < 2; i++) {
+            System.gc();
+            System.runFinalization();
+        }
+    }
+
+    private static long metaspaceUsed() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if ("Metaspace".equals(pool.getName())) {
+                return pool.getUsage().getUsed();
+            }
+        }
+        return 0;
+    }
+
+    private static double megabytes(long bytes) {
+        return bytes / (1024.0 * 1024.0);
+    }
+
+    private static class Tracked {
+
+        private final Set<TrackedReference> injectors = ConcurrentHashMap.newKeySet();
+        private final Set<TrackedReference> mocks = ConcurrentHashMap.newKeySet();
+        private final LongAdder builtInjectors = new LongAdder();
+        private final LongAdder createdMocks = new LongAdder();
+
+    }
+
+    /*
+     * Removed from its owner once the referent has been collected.
+     */
+    private static class TrackedReference extends WeakReference<Object> {
+
+        private final Set<TrackedReference> owner;
+
+        private TrackedReference(Object referent, ReferenceQueue<Object> queue, Set<TrackedReference> owner) {
+            super(referent, queue);
+            this.owner = owner;
+        }
+
+    }
+
+    /*
+     * Handed to `requestInjection()`, so that Guice hands it every injector
+     * built from the module.
+     */
+    private static class InjectorTracker {
+
+        private final MockLeakTracker tracker;
+        private final Class<? extends TestModule> module;
+
+        private InjectorTracker(MockLeakTracker tracker, Class<? extends TestModule> module) {
+            this.tracker = tracker;
+            this.module = module;
+        }
+
+        @Inject
+        void track(Injector injector) {
+            Tracked tracked = tracker.tracked(module);
+            tracked.injectors.add(new TrackedReference(injector, tracker.collected, tracked.injectors));
+            tracked.builtInjectors.increment();
+        }
+
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.collectivehealth.test.module;
+
+import org.mockito.MockSettings;
+
+/**
+ * How a mock or spy created by `TestModule` keeps track of its invocations.
+ */
+
+public enum MockMode {
+
+    /**
+     * Mockito's default: every invocation is recorded, and can be verified.
+     */
+    RECORDING {
+        @Override
+        MockSettings apply(MockSettings settings) {
+            return settings;
+        }
+    },
+
+    /**
+     * No invocation is recorded, so the mock uses constant memory however
+     * often it is called. It can still be stubbed, but not verified. Meant for
+     * soak and load tests.
+     */
+    STUB_ONLY {
+        @Override
+        MockSettings apply(MockSettings settings) {
+            return settings.stubOnly();
+        }
+    },
+
+    /**
+     * No invocation is recorded, but invocations are counted per method with
+     * striped counters, so that a mock or spy called from many threads at once
+     * doesn't serialize them. Counts are verified through `MockCounters`.
+     * Meant for concurrency tests.
+     */
+    COUNTING {
+        @Override
+        MockSettings apply(MockSettings settings) {
+            return settings.stubOnly().invocationListeners(new InvocationCounter());
+        }
+    };
+
+    abstract MockSettings apply(MockSettings settings);
+
+}
@@ -0,0 +1,65 @@
+package com.collectivehealth.test.module;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The mocks and spies created by one `TestModule.configure()`, along with the
+ * engine that created each of them, so they can be reset together.
+ *
+ * Mocks built by hand in `getDefaultInstances()` are recorded too, but as
+ * their stubbing is the default's own configuration, only their invocations
+ * are cleared.
+ */
+
+class MockRecorder {
+
+    private final List<Object> mocks = new ArrayList<>();
+    private final List<MockEngine> engines = new ArrayList<>();
+    private final List<Boolean> defaults = new ArrayList<>();
+
+    /**
+     * Record a mock or spy created by the module.
+     */
+    synchronized void record(Object mock, MockEngine engine) {
+        add(mock, engine, false);
+    }
+
+    /**
+     * Record a mock the module was handed as a default, unless already
+     * recorded.
+     */
+    synchronized void recordDefault(Object mock, MockEngine engine) {
+        for (Object recorded : mocks) {
+            if (recorded == mock) {
+                return;
+            }
+        }
+        add(mock, engine, true);
+    }
+
+    private void add(Object mock, MockEngine engine, boolean isDefault) {
+        mocks.add(mock);
+        engines.add(engine);
+        defaults.add(isDefault);
+    }
+
+    synchronized List<Object> getMocks() {
+        return new ArrayList<>(mocks);
+    }
+
+    /**
+     * Clear the stubbing and invocations of every recorded mock and spy, and
+     * the invocations of recorded defaults.
+     */
+    synchronized void resetAll() {
+        for (int i = 0; i < mocks.size(); i++) {
+            if (defaults.get(i)) {
+                engines.get(i).clearInvocations(mocks.get(i));
+            } else {
+                engines.get(i).reset(mocks.get(i));
+            }
+        }
+    }
+
+}
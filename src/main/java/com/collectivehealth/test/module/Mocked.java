@@ -0,0 +1,16 @@
+package com.collectivehealth.test.module;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Mock out the type of this field, and set the field to the mock, when the
+ * test is passed to `TestModule.withAnnotatedFields()`.
+ */
+
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Mocked {
+}
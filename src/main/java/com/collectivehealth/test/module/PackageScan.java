@@ -0,0 +1,174 @@
+package com.collectivehealth.test.module;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * The interfaces of some packages, for `TestModule.withMockedPackages()`.
+ * Classes are looked up in the JVM's `ClasspathIndex`, and each distinct scan
+ * is only resolved once per JVM.
+ *
+ * Include and exclude patterns are regular expressions matched against the
+ * fully qualified class name. With no include pattern, every interface is
+ * included.
+ *
+ * i.e.
+ *
+ * <pre>
+ * new TestModule().withMockedPackages(PackageScan.of("com.acme.dao")
+ *         .withSubpackages()
+ *         .excluding(".*Audit.*"));
+ * </pre>
+ *
+ * Scans are immutable: every method returns a new scan.
+ */
+
+public final class PackageScan {
+
+    private final List<String> packages;
+    private final boolean subpackages;
+    private final List<String> includes;
+    private final List<String> excludes;
+
+    private PackageScan(List<String> packages, boolean subpackages, List<String> includes, List<String> excludes) {
+        this.packages = Collections.unmodifiableList(packages);
+        this.subpackages = subpackages;
+        this.includes = Collections.unmodifiableList(includes);
+        this.excludes = Collections.unmodifiableList(excludes);
+    }
+
+    /**
+     * The interfaces directly in these packages.
+     */
+    public static PackageScan of(String... packages) {
+        return new PackageScan(Arrays.asList(packages.clone()), false, new ArrayList<>(), new ArrayList<>());
+    }
+
+    /**
+     * Also scan the packages' subpackages.
+     */
+    public PackageScan withSubpackages() {
+        return new PackageScan(packages, true, includes, excludes);
+    }
+
+    /**
+     * Only keep interfaces whose name matches one of the including patterns.
+     */
+    public PackageScan including(String regex) {
+        Pattern.compile(regex);
+        List<String> includes = new ArrayList<>(this.includes);
+        includes.add(regex);
+        return new PackageScan(packages, subpackages, includes, excludes);
+    }
+
+    /**
+     * Drop interfaces whose name matches this pattern.
+     */
+    public PackageScan excluding(String regex) {
+        Pattern.compile(regex);
+        List<String> excludes = new ArrayList<>(this.excludes);
+        excludes.add(regex);
+        return new PackageScan(packages, subpackages, includes, excludes);
+    }
+
+    /**
+     * Drop these interfaces, i.e. to bind them some other way.
+     */
+    public PackageScan excluding(Class<?>... classes) {
+        PackageScan scan = this;
+        for (Class<?> c : classes) {
+            scan = scan.excluding(Pattern.quote(c.getName()));
+        }
+        return scan;
+    }
+
+    /**
+     * The matching interfaces, from the JVM's shared index. Throws an
+     * `IllegalArgumentException` if a package has no class in the index, i.e.
+     * a typo or a package loaded outside of `java.class.path`.
+     */
+    public List<Class<?>> getInterfaces() {
+        return ClasspathIndex.shared().scan(this);
+    }
+
+    List<Class<?>> resolve(ClasspathIndex index) {
+        List<Pattern> includePatterns = compile(includes);
+        List<Pattern> excludePatterns = compile(excludes);
+        List<Class<?>> interfaces = new ArrayList<>();
+        for (String packageName : packages) {
+            List<String> classNames = index.getClassNames(packageName, subpackages);
+            if (classNames.isEmpty()) {
+                throw new IllegalArgumentException("No class found in package " + packageName
+                        + ", check its name, and that it is on java.class.path rather than a custom class loader.");
+            }
+            for (String className : classNames) {
+                if ((includePatterns.isEmpty() || matchesAny(includePatterns, className)) && !matchesAny(excludePatterns, className)) {
+                    Class<?> c = loadClass(className);
+                    if (c != null && c.isInterface() && !c.isAnnotation() && !interfaces.contains(c)) {
+                        interfaces.add(c);
+                    }
+                }
+            }
+        }
+        return interfaces;
+    }
+
+    private static List<Pattern> compile(List<String> regexes) {
+        List<Pattern> patterns = new ArrayList<>(regexes.size());
+        for (String regex : regexes) {
+            patterns.add(Pattern.compile(regex));
+        }
+        return patterns;
+    }
+
+    private static boolean matchesAny(List<Pattern> patterns, String className) {
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(className).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Class<?> loadClass(String name) {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader == null) {
+            classLoader = PackageScan.class.getClassLoader();
+        }
+        try {
+            // Not initialized, a mock never needs it
+            return Class.forName(name, false, classLoader);
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(packages, subpackages, includes, excludes);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof PackageScan)) {
+            return false;
+        }
+        PackageScan other = (PackageScan) obj;
+        return packages.equals(other.packages) && subpackages == other.subpackages && includes.equals(other.includes)
+                && excludes.equals(other.excludes);
+    }
+
+    @Override
+    public String toString() {
+        return "PackageScan" + packages + (subpackages ? " with subpackages" : "") + ", including " + includes
+                + ", excluding " + excludes;
+    }
+
+}
@@ -0,0 +1,243 @@
+package com.collectivehealth.test.module;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import com.google.inject.Key;
+import com.google.inject.spi.ProvisionListener;
+
+/**
+ * A Guice `ProvisionListener` accumulating, per key, how many times it has
+ * been provisioned and how long that took, across the JVM. Time spent
+ * provisioning a key's own dependencies is tracked apart from its self time,
+ * along with which keys were provisioned from which, to find the real
+ * classes worth mocking.
+ *
+ * Instances bound as is, which includes mocks and spies unless
+ * `withLazyMocking()` is used, only show up once per injector, when Guice
+ * injects their members.
+ *
+ * The shared profiler writes its summary when the JVM shuts down: to the file
+ * named by the `testmodule.provisioning.file` system property if set,
+ * otherwise to standard error. Setting the `testmodule.provisioning` system
+ * property to `true` installs it in every `TestModule`, without any code
+ * change.
+ *
+ * i.e.
+ *
+ * <pre>
+ * new TestModule()
+ *         .withProvisionProfiler(ProvisionProfiler.shared())
+ *         .withMockedClasses(Session.class);
+ * </pre>
+ */
+
+public class ProvisionProfiler implements ProvisionListener {
+
+    public static final String ENABLED_PROPERTY = "testmodule.provisioning";
+    public static final String FILE_PROPERTY = "testmodule.provisioning.file";
+
+    // Number of keys listed in the summary, and of trees printed
+    private static final int SLOWEST_KEYS = 30;
+    private static final int SLOWEST_TREES = 10;
+    private static final int MAXIMUM_DEPTH = 8;
+
+    private static volatile ProvisionProfiler shared;
+
+    private final ConcurrentMap<Key<?>, KeyTimings> keys = new ConcurrentHashMap<>();
+    // Provisions in progress on the current thread, innermost first
+    private final ThreadLocal<Deque<Frame>> stack = ThreadLocal.withInitial(ArrayDeque::new);
+
+    /**
+     * The profiler shared across the JVM, written at shutdown.
+     */
+    public static ProvisionProfiler shared() {
+        if (shared == null) {
+            synchronized (ProvisionProfiler.class) {
+                if (shared == null) {
+                    ProvisionProfiler profiler = new ProvisionProfiler();
+                    Runtime.getRuntime().addShutdownHook(new Thread(profiler::writeAtShutdown, "testmodule-provision-profiler"));
+                    shared = profiler;
+                }
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Whether the shared profiler should be installed in every module.
+     */
+    static boolean isEnabledByDefault() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    @Override
+    public <T> void onProvision(ProvisionInvocation<T> provision) {
+        Key<?> key = provision.getBinding().getKey();
+        Deque<Frame> frames = stack.get();
+        Frame parent = frames.peek();
+        Frame frame = new Frame(key);
+        frames.push(frame);
+
+        long start = System.nanoTime();
+        try {
+            provision.provision();
+        } finally {
+            long nanos = System.nanoTime() - start;
+            frames.pop();
+
+            KeyTimings timings = keys.computeIfAbsent(key, k -> new KeyTimings());
+            timings.count.increment();
+            timings.total.add(nanos);
+            timings.self.add(nanos - frame.childNanos);
+            timings.max.accumulate(nanos);
+            if (parent == null) {
+                timings.roots.increment();
+            } else {
+                parent.childNanos += nanos;
+                keys.computeIfAbsent(parent.key, k -> new KeyTimings())
+                        .children.computeIfAbsent(key, k -> new LongAdder()).increment();
+            }
+        }
+    }
+
+    /**
+     * Number of times this key has been provisioned.
+     */
+    public long getProvisionCount(Key<?> key) {
+        KeyTimings timings = keys.get(key);
+        return timings == null ? 0 : timings.count.sum();
+    }
+
+    /**
+     * Total time spent provisioning this key, dependencies included, in
+     * nanoseconds.
+     */
+    public long getTotalNanos(Key<?> key) {
+        KeyTimings timings = keys.get(key);
+        return timings == null ? 0 : timings.total.sum();
+    }
+
+    /**
+     * Time spent provisioning this key, minus the time spent provisioning its
+     * dependencies, in nanoseconds.
+     */
+    public long getSelfNanos(Key<?> key) {
+        KeyTimings timings = keys.get(key);
+        return timings == null ? 0 : timings.self.sum();
+    }
+
+    /**
+     * Keys provisioned while provisioning this one.
+     */
+    public Set<Key<?>> getDependencies(Key<?> key) {
+        KeyTimings timings = keys.get(key);
+        return timings == null ? new HashSet<>() : new HashSet<>(timings.children.keySet());
+    }
+
+    /**
+     * Write the summary: the keys with the most self time, then the
+     * provisioning trees of the slowest keys provisioned from outside Guice.
+     */
+    public void writeTo(PrintStream out) {
+        out.println("TestModule provisioning (ms)");
+        out.printf("%-80s %10s %10s %10s %10s%n", "Key", "Count", "Self", "Total", "Max");
+        keys.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<Key<?>, KeyTimings> e) -> e.getValue().self.sum()).reversed())
+                .limit(SLOWEST_KEYS)
+                .forEach(e -> {
+                    KeyTimings timings = e.getValue();
+                    out.printf("%-80s %10d %10.1f %10.1f %10.1f%n", e.getKey(), timings.count.sum(), millis(timings.self.sum()),
+                            millis(timings.total.sum()), millis(timings.max.get()));
+                });
+
+        out.println();
+        out.println("Slowest provisioning trees (ms, count)");
+        keys.entrySet().stream()
+                .filter(e -> e.getValue().roots.sum() > 0)
+                .sorted(Comparator.comparingLong((Map.Entry<Key<?>, KeyTimings> e) -> e.getValue().total.sum()).reversed())
+                .limit(SLOWEST_TREES)
+                .forEach(e -> writeTree(out, e.getKey(), 0, new HashSet<>()));
+        out.flush();
+    }
+
+    private void writeTree(PrintStream out, Key<?> key, int depth, Set<Key<?>> path) {
+        KeyTimings timings = keys.get(key);
+        StringBuilder indent = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            indent.append("  ");
+        }
+        out.printf("%s%s %.1f (%d)%n", indent, key, millis(timings.total.sum()), timings.count.sum());
+
+        // Keys can be provisioned from several places, but not recursively
+        if (depth < MAXIMUM_DEPTH && path.add(key)) {
+            timings.children.keySet().stream()
+                    .sorted(Comparator.comparingLong((Key<?> k) -> keys.get(k).total.sum()).reversed())
+                    .forEach(child -> writeTree(out, child, depth + 1, path));
+            path.remove(key);
+        }
+    }
+
+    /**
+     * Forget everything recorded so far.
+     */
+    public void clear() {
+        keys.clear();
+    }
+
+    private void writeAtShutdown() {
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        String file = System.getProperty(FILE_PROPERTY);
+        if (file == null) {
+            writeTo(System.err);
+            return;
+        }
+        try (PrintStream out = new PrintStream(new FileOutputStream(file), false, "UTF-8")) {
+            writeTo(out);
+        } catch (IOException e) {
+            System.err.println("Unable to write TestModule provisioning profile to " + file + ": " + e);
+            writeTo(System.err);
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static class Frame {
+
+        private final Key<?> key;
+        private long childNanos;
+
+        private Frame(Key<?> key) {
+            this.key = key;
+        }
+
+    }
+
+    private static class KeyTimings {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder roots = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAdder self = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+        private final ConcurrentMap<Key<?>, LongAdder> children = new ConcurrentHashMap<>();
+
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.collectivehealth.test.module;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * A lightweight `MockEngine` for interfaces, built on `java.lang.reflect.Proxy`
+ * rather than Mockito's generated subclasses, so it costs next to no
+ * metaspace or class generation. Mocks only: spies and concrete classes are
+ * left to `MockFactory`.
+ *
+ * Its mocks can't be stubbed or verified through Mockito; use `ProxyMocks`
+ * instead.
+ *
+ * i.e.
+ *
+ * <pre>
+ * Injector injector = Guice.createInjector(new TestModule()
+ *         .withMockEngine(ProxyMockEngine.shared())
+ *         .withMockedClasses(Repository.class));
+ * Repository repository = injector.getInstance(Repository.class);
+ * ProxyMocks.when(repository.count()).thenReturn(42L);
+ * </pre>
+ */
+
+public class ProxyMockEngine implements MockEngine {
+
+    /**
+     * What a mock returns for calls that haven't been stubbed.
+     */
+    @FunctionalInterface
+    public interface DefaultAnswer {
+
+        /**
+         * Zero for primitives and their wrappers, empty for collections,
+         * streams and optionals, and `null` otherwise, like Mockito.
+         */
+        DefaultAnswer RETURNS_EMPTY_VALUES = (method, args) -> ProxyMockHandler.emptyValue(method.getReturnType());
+
+        Object answer(Method method, Object[] args) throws Throwable;
+
+    }
+
+    private static final ProxyMockEngine SHARED = new ProxyMockEngine(DefaultAnswer.RETURNS_EMPTY_VALUES);
+
+    private final DefaultAnswer defaultAnswer;
+
+    public ProxyMockEngine(DefaultAnswer defaultAnswer) {
+        this.defaultAnswer = defaultAnswer;
+    }
+
+    /**
+     * The engine returning empty values by default.
+     */
+    public static ProxyMockEngine shared() {
+        return SHARED;
+    }
+
+    @Override
+    public boolean supports(Class<?> c, MockKind kind) {
+        return kind == MockKind.MOCK && c.isInterface();
+    }
+
+    @Override
+    public <T> T create(Class<T> c, MockKind kind, MockMode mode) {
+        if (!supports(c, kind)) {
+            throw new IllegalArgumentException("Only mocks of interfaces are supported, not a " + kind + " of " + c.getName());
+        }
+        ClassLoader classLoader = c.getClassLoader() == null ? ClassLoader.getSystemClassLoader() : c.getClassLoader();
+        return c.cast(Proxy.newProxyInstance(classLoader, new Class<?>[] { c }, new ProxyMockHandler(c, mode, defaultAnswer)));
+    }
+
+    @Override
+    public boolean isMock(Object o) {
+        return ProxyMockHandler.of(o) != null;
+    }
+
+    @Override
+    public void reset(Object mock) {
+        ProxyMocks.handler(mock).reset();
+    }
+
+    @Override
+    public void clearInvocations(Object mock) {
+        ProxyMocks.handler(mock).clearInvocations();
+    }
+
+}
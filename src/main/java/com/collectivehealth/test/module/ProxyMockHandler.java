@@ -0,0 +1,233 @@
+package com.collectivehealth.test.module;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import com.collectivehealth.test.module.ProxyMockEngine.DefaultAnswer;
+
+/**
+ * The behavior behind a `ProxyMockEngine` mock: stubbed answers matched on
+ * method and arguments, per-method invocation counts, and a default answer
+ * for everything else.
+ */
+
+class ProxyMockHandler implements InvocationHandler {
+
+    // The latest call on any proxy mock by this thread, for `ProxyMocks.when()`
+    private static final ThreadLocal<Invocation> LAST_INVOCATION = new ThreadLocal<>();
+
+    private final Class<?> type;
+    private final MockMode mode;
+    private final DefaultAnswer defaultAnswer;
+    private final ConcurrentMap<Invocation, ProxyMocks.Answer<?>> stubs = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Method, LongAdder> counts = new ConcurrentHashMap<>();
+
+    ProxyMockHandler(Class<?> type, MockMode mode, DefaultAnswer defaultAnswer) {
+        this.type = type;
+        this.mode = mode;
+        this.defaultAnswer = defaultAnswer;
+    }
+
+    /**
+     * The handler behind a proxy mock, or `null` if `o` isn't one.
+     */
+    static ProxyMockHandler of(Object o) {
+        if (o == null || !Proxy.isProxyClass(o.getClass())) {
+            return null;
+        }
+        InvocationHandler handler = Proxy.getInvocationHandler(o);
+        return handler instanceof ProxyMockHandler ? (ProxyMockHandler) handler : null;
+    }
+
+    static Invocation pullLastInvocation() {
+        Invocation invocation = LAST_INVOCATION.get();
+        LAST_INVOCATION.remove();
+        return invocation;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return invokeObjectMethod(proxy, method, args);
+        }
+
+        Invocation invocation = new Invocation(this, method, args);
+        LAST_INVOCATION.set(invocation);
+        if (mode != MockMode.STUB_ONLY) {
+            counts.computeIfAbsent(method, m -> new LongAdder()).increment();
+        }
+
+        ProxyMocks.Answer<?> answer = stubs.get(invocation);
+        if (answer != null) {
+            return answer.answer(invocation.args);
+        }
+        return defaultAnswer.answer(method, invocation.args);
+    }
+
+    void stub(Invocation invocation, ProxyMocks.Answer<?> answer) {
+        // The stubbing call itself isn't an invocation
+        LongAdder count = counts.get(invocation.method);
+        if (count != null) {
+            count.decrement();
+        }
+        stubs.put(invocation, answer);
+    }
+
+    long count(String methodName) {
+        long count = 0;
+        for (Map.Entry<Method, LongAdder> entry : counts.entrySet()) {
+            if (entry.getKey().getName().equals(methodName)) {
+                count += entry.getValue().sum();
+            }
+        }
+        return count;
+    }
+
+    void reset() {
+        stubs.clear();
+        counts.clear();
+    }
+
+    void clearInvocations() {
+        counts.clear();
+    }
+
+    private Object invokeObjectMethod(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+        case "equals":
+            return proxy == args[0];
+        case "hashCode":
+            return System.identityHashCode(proxy);
+        default:
+            return "Mock for " + type.getSimpleName() + ", hashCode: " + System.identityHashCode(proxy);
+        }
+    }
+
+    static Object emptyValue(Class<?> type) {
+        if (type == boolean.class || type == Boolean.class) {
+            return false;
+        }
+        if (type == char.class || type == Character.class) {
+            return '\0';
+        }
+        if (type == byte.class || type == Byte.class) {
+            return (byte) 0;
+        }
+        if (type == short.class || type == Short.class) {
+            return (short) 0;
+        }
+        if (type == int.class || type == Integer.class) {
+            return 0;
+        }
+        if (type == long.class || type == Long.class) {
+            return 0L;
+        }
+        if (type == float.class || type == Float.class) {
+            return 0f;
+        }
+        if (type == double.class || type == Double.class) {
+            return 0d;
+        }
+        if (type == Optional.class) {
+            return Optional.empty();
+        }
+        if (type == OptionalInt.class) {
+            return OptionalInt.empty();
+        }
+        if (type == OptionalLong.class) {
+            return OptionalLong.empty();
+        }
+        if (type == OptionalDouble.class) {
+            return OptionalDouble.empty();
+        }
+        if (type == Stream.class) {
+            return Stream.empty();
+        }
+        if (type == IntStream.class) {
+            return IntStream.empty();
+        }
+        if (type == LongStream.class) {
+            return LongStream.empty();
+        }
+        if (type == DoubleStream.class) {
+            return DoubleStream.empty();
+        }
+        if (type == SortedSet.class) {
+            return new TreeSet<>();
+        }
+        if (type == Set.class) {
+            return new HashSet<>();
+        }
+        if (type == List.class || type == Collection.class || type == Iterable.class) {
+            return new ArrayList<>();
+        }
+        if (type == SortedMap.class) {
+            return new TreeMap<>();
+        }
+        if (type == Map.class) {
+            return new HashMap<>();
+        }
+        return null;
+    }
+
+    /**
+     * A call on a proxy mock, equal to any other call of the same method with
+     * equal arguments.
+     */
+    static final class Invocation {
+
+        private static final Object[] NO_ARGUMENTS = new Object[0];
+
+        final ProxyMockHandler handler;
+        final Method method;
+        final Object[] args;
+
+        Invocation(ProxyMockHandler handler, Method method, Object[] args) {
+            this.handler = handler;
+            this.method = method;
+            this.args = args == null ? NO_ARGUMENTS : args;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * method.hashCode() + Arrays.deepHashCode(args);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Invocation)) {
+                return false;
+            }
+            Invocation other = (Invocation) obj;
+            return method.equals(other.method) && Arrays.deepEquals(args, other.args);
+        }
+
+    }
+
+}
@@ -0,0 +1,108 @@
+package com.collectivehealth.test.module;
+
+/**
+ * Stubbing and verification for mocks created by `ProxyMockEngine`, in the
+ * spirit of Mockito's own API.
+ *
+ * i.e.
+ *
+ * <pre>
+ * ProxyMocks.when(repository.find("id")).thenReturn(entity);
+ * assertEquals(1, ProxyMocks.invocationCount(repository, "find"));
+ * </pre>
+ */
+
+public final class ProxyMocks {
+
+    /**
+     * Computes the value returned by a stubbed call, from its arguments.
+     */
+    @FunctionalInterface
+    public interface Answer<T> {
+
+        T answer(Object[] args) throws Throwable;
+
+    }
+
+    /**
+     * The stubbing of one call, started by `when()`.
+     */
+    public static final class OngoingStubbing<T> {
+
+        private final ProxyMockHandler.Invocation invocation;
+
+        private OngoingStubbing(ProxyMockHandler.Invocation invocation) {
+            this.invocation = invocation;
+        }
+
+        /**
+         * Return this value from the call.
+         */
+        public void thenReturn(T value) {
+            thenAnswer(args -> value);
+        }
+
+        /**
+         * Throw this from the call.
+         */
+        public void thenThrow(Throwable throwable) {
+            thenAnswer(args -> {
+                throw throwable;
+            });
+        }
+
+        /**
+         * Compute what the call returns from its arguments.
+         */
+        public void thenAnswer(Answer<? extends T> answer) {
+            invocation.handler.stub(invocation, answer);
+        }
+
+    }
+
+    private ProxyMocks() {
+    }
+
+    /**
+     * Stub the call just made on a proxy mock, matched on its method and
+     * arguments.
+     */
+    public static <T> OngoingStubbing<T> when(T call) {
+        ProxyMockHandler.Invocation invocation = ProxyMockHandler.pullLastInvocation();
+        if (invocation == null) {
+            throw new IllegalStateException("when() requires a call on a proxy mock, i.e. when(mock.method()).");
+        }
+        return new OngoingStubbing<>(invocation);
+    }
+
+    /**
+     * Whether `o` is a mock created by `ProxyMockEngine`.
+     */
+    public static boolean isMock(Object o) {
+        return ProxyMockHandler.of(o) != null;
+    }
+
+    /**
+     * How many times methods of this name (all overloads) have been called on
+     * the mock. Always zero in `MockMode.STUB_ONLY`.
+     */
+    public static long invocationCount(Object mock, String methodName) {
+        return handler(mock).count(methodName);
+    }
+
+    /**
+     * Forget the stubbing and invocations of the mock.
+     */
+    public static void reset(Object mock) {
+        handler(mock).reset();
+    }
+
+    static ProxyMockHandler handler(Object mock) {
+        ProxyMockHandler handler = ProxyMockHandler.of(mock);
+        if (handler == null) {
+            throw new IllegalArgumentException("Not a proxy mock: " + mock);
+        }
+        return handler;
+    }
+
+}
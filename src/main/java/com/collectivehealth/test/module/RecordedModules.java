@@ -0,0 +1,142 @@
+package com.collectivehealth.test.module;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import com.google.inject.Binder;
+import com.google.inject.Binding;
+import com.google.inject.Key;
+import com.google.inject.Module;
+import com.google.inject.spi.Element;
+import com.google.inject.spi.Elements;
+import com.google.inject.spi.MembersInjectorLookup;
+import com.google.inject.spi.PrivateElements;
+import com.google.inject.spi.ProviderInstanceBinding;
+import com.google.inject.spi.ProviderLookup;
+import com.google.inject.spi.ProvidesMethodBinding;
+
+/**
+ * The elements of production modules behind
+ * `TestModule.withProductionModules()`, recorded once per JVM for each list
+ * of the same module instances, and replayed into every test's binder minus
+ * the bindings the test overrides.
+ *
+ * Some elements are tied to the injector they are first applied to: provider
+ * lookups, i.e. from `getProvider()` or the parameters of `@Provides`
+ * methods, members injector lookups, provider methods and private modules.
+ * Modules containing any of them are recorded again for every injector
+ * instead.
+ *
+ * Recordings are kept for up to `MAXIMUM_SIZE` lists of modules, least
+ * recently used evicted first, so modules built anew for every test don't
+ * pile up.
+ */
+
+final class RecordedModules {
+
+    static final int MAXIMUM_SIZE = 64;
+
+    private static final Map<List<Module>, RecordedModules> RECORDED = new LinkedHashMap<List<Module>, RecordedModules>(16,
+            0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<Module>, RecordedModules> eldest) {
+            return size() > MAXIMUM_SIZE;
+        }
+
+    };
+
+    private final List<Module> modules;
+    private final List<Element> elements;
+    // The key of each element, `null` for elements other than bindings
+    private final List<Key<?>> elementKeys;
+    // Whether the elements can be applied to more than one injector
+    private final boolean replayable;
+    final Set<Key<?>> keys;
+
+    private RecordedModules(List<Module> modules) {
+        this.modules = modules;
+        this.elements = Collections.unmodifiableList(new ArrayList<>(Elements.getElements(modules)));
+        List<Key<?>> elementKeys = new ArrayList<>(elements.size());
+        Set<Key<?>> keys = new HashSet<>();
+        boolean replayable = true;
+        for (Element element : elements) {
+            Key<?> key = element instanceof Binding ? ((Binding<?>) element).getKey() : null;
+            elementKeys.add(key);
+            if (key != null) {
+                keys.add(key);
+            }
+            replayable &= isReplayable(element);
+        }
+        this.elementKeys = elementKeys;
+        this.replayable = replayable;
+        this.keys = Collections.unmodifiableSet(keys);
+    }
+
+    /*
+     * Recorded outside of the lock, as recording runs the modules'
+     * `configure()`.
+     */
+    static RecordedModules of(List<Module> modules) {
+        List<Module> key = Collections.unmodifiableList(new ArrayList<>(modules));
+        RecordedModules recorded;
+        synchronized (RECORDED) {
+            recorded = RECORDED.get(key);
+        }
+        if (recorded == null) {
+            recorded = new RecordedModules(key);
+            synchronized (RECORDED) {
+                RECORDED.put(key, recorded);
+            }
+        }
+        return recorded;
+    }
+
+    static void clear() {
+        synchronized (RECORDED) {
+            RECORDED.clear();
+        }
+    }
+
+    static int size() {
+        synchronized (RECORDED) {
+            return RECORDED.size();
+        }
+    }
+
+    /**
+     * Replay every element, except bindings of shadowed keys.
+     */
+    void applyTo(Binder binder, Set<Key<?>> shadowed) {
+        if (!replayable) {
+            new RecordedModules(modules).replay(binder, shadowed);
+            return;
+        }
+        replay(binder, shadowed);
+    }
+
+    private void replay(Binder binder, Set<Key<?>> shadowed) {
+        for (int i = 0; i < elements.size(); i++) {
+            Key<?> key = elementKeys.get(i);
+            if (key == null || !shadowed.contains(key)) {
+                elements.get(i).applyTo(binder);
+            }
+        }
+    }
+
+    private static boolean isReplayable(Element element) {
+        if (element instanceof ProviderLookup || element instanceof MembersInjectorLookup
+                || element instanceof PrivateElements) {
+            return false;
+        }
+        return !(element instanceof ProviderInstanceBinding
+                && ((ProviderInstanceBinding<?>) element).getUserSuppliedProvider() instanceof ProvidesMethodBinding);
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.collectivehealth.test.module;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import com.google.inject.Binder;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+
+/**
+ * The parent injectors behind `TestModule.createChildInjector()`, holding the
+ * `getSharedInstances()` of a `TestModule` subclass.
+ *
+ * The shared instances live in one injector per subclass, built once, but each
+ * child gets a parent of its own that forwards to it. Guice creates
+ * just-in-time bindings in the parent whenever it can, so with a single shared
+ * parent, a real type provisioned by one test could no longer be mocked by the
+ * next.
+ */
+
+class SharedInjectors {
+
+    private static final ConcurrentMap<Class<? extends TestModule>, SharedInstances> SHARED = new ConcurrentHashMap<>();
+
+    private SharedInjectors() {
+    }
+
+    static Injector createParent(TestModule module) {
+        SharedInstances shared = SHARED.get(module.getClass());
+        if (shared == null) {
+            // Not `computeIfAbsent()`, the injector is only built by the holder
+            SHARED.putIfAbsent(module.getClass(), new SharedInstances(module.getSharedInstances()));
+            shared = SHARED.get(module.getClass());
+        }
+        return Guice.createInjector(shared::bindTo);
+    }
+
+    static void clear() {
+        SHARED.clear();
+    }
+
+    private static class SharedInstances {
+
+        private final Collection<ClassInstancePair<?>> sharedInstances;
+        private final MemoizingProvider<Injector> injector;
+
+        private SharedInstances(Collection<ClassInstancePair<?>> sharedInstances) {
+            this.sharedInstances = sharedInstances;
+            this.injector = new MemoizingProvider<>(() -> Guice.createInjector(
+                    binder -> TestModule.bindInstances(binder, sharedInstances)));
+        }
+
+        /*
+         * Bind every shared key to the instance held by the shared injector.
+         */
+        private void bindTo(Binder binder) {
+            Injector shared = injector.get();
+            for (ClassInstancePair<?> classInstancePair : sharedInstances) {
+                bindTo(binder, shared, classInstancePair.getKey());
+            }
+        }
+
+        private static <T> void bindTo(Binder binder, Injector shared, Key<T> key) {
+            binder.bind(key).toProvider(shared.getProvider(key));
+        }
+
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.collectivehealth.test.module;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Spy on the type of this field, and set the field to the spy, when the test
+ * is passed to `TestModule.withAnnotatedFields()`.
+ */
+
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Spied {
+}
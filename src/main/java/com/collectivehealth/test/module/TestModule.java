@@ -1,14 +1,28 @@
 package com.collectivehealth.test.module;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.stream.Collectors;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
 import org.apache.commons.lang3.StringUtils;
-import org.mockito.Mockito;
+import com.collectivehealth.test.module.BindingListener.Phase;
 import com.google.inject.AbstractModule;
-import com.google.inject.name.Names;
+import com.google.inject.Binder;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.Module;
+import com.google.inject.Provider;
+import com.google.inject.matcher.Matchers;
 
 /**
  * This is a Guice Module class that's designed to hide away the weeds of
@@ -67,16 +81,42 @@ import com.google.inject.name.Names;
  * test-as-documentation!)
  */
 
-public class TestModule extends AbstractModule {
+public class TestModule extends AbstractModule implements Cloneable {
 
     private Collection<ClassInstancePair<?>> instances = new HashSet<>();
     private Collection<Class<?>> mockedClasses = new HashSet<>();
     private Collection<Class<?>> spiedClasses = new HashSet<>();
+    private Collection<ClassInstancePair<?>> spiedInstances = new HashSet<>();
+    private Collection<Class<?>> prototypeSpiedClasses = new HashSet<>();
+    private boolean prototypeSpies;
+    private Collection<Class<?>> autoMockRoots = new HashSet<>();
+    private List<Object> annotatedTests = new ArrayList<>();
+    private List<Module> productionModules = new ArrayList<>();
+    private Map<Class<?>, MockMode> mockModes = new HashMap<>();
+    private MockMode defaultMockMode = MockMode.RECORDING;
+    private Map<Class<?>, MockEngine> mockEngines = new HashMap<>();
+    private MockEngine defaultMockEngine = MockFactory.shared();
+    private boolean lazy;
+    private ThreadMockScope threadScope;
+    private boolean cacheable = true;
+    private boolean frozen;
+    private boolean sharedInParent;
+    // Resolved from the configuration above, see `plan()`
+    private BindingPlan plan;
+    private BindingListener bindingListener = BindingTimingReport.isEnabledByDefault() ? BindingTimingReport.shared() : null;
+    private ProvisionProfiler provisionProfiler = ProvisionProfiler.isEnabledByDefault() ? ProvisionProfiler.shared() : null;
+    private MockLeakTracker leakTracker = MockLeakTracker.isEnabledByDefault() ? MockLeakTracker.shared() : null;
+
+    // Mocks and spies created by the latest `configure()`, see `InjectorCache`
+    // and `TestSession`
+    private MockRecorder createdMocks = new MockRecorder();
 
     /**
      * Bind a class to a specific instance for the test.
      */
     public <T> TestModule withInstance(Class<T> c, T instance) {
+        checkNotFrozen();
+        invalidatePlan();
         instances.add(new ClassInstancePair<T>(c, instance));
         return this;
     }
@@ -85,6 +125,8 @@ public class TestModule extends AbstractModule {
      * Bind a class annotated with name to a specific instance for the test.
      */
     public <T> TestModule withInstance(Class<T> c, String name, T instance) {
+        checkNotFrozen();
+        invalidatePlan();
         instances.add(new ClassInstancePair<T>(c, name, instance));
         return this;
     }
@@ -93,81 +135,678 @@ public class TestModule extends AbstractModule {
      * Mock out these classes for the test.
      */
     public TestModule withMockedClasses(Class<?>... mockedClasses) {
+        checkNotFrozen();
+        invalidatePlan();
         this.mockedClasses.addAll(Arrays.asList(mockedClasses));
         return this;
     }
 
+    /**
+     * Spy on this instance for the test. Every injector gets its own spy,
+     * copying the instance's field state without running any constructor,
+     * while the instance itself is left alone.
+     */
+    public <T> TestModule withSpiedInstance(Class<T> c, T instance) {
+        checkNotFrozen();
+        invalidatePlan();
+        spiedInstances.add(new ClassInstancePair<T>(c, instance));
+        return this;
+    }
+
+    /**
+     * Create every spy of a class, from `withSpiedClasses()` and
+     * `createClassSpyPair()`, by copying the field state of a real instance
+     * built once per JVM, rather than running the constructor for every spy.
+     * See `MockFactory.prototypeSpy()`.
+     */
+    public TestModule withPrototypeSpies() {
+        checkNotFrozen();
+        invalidatePlan();
+        this.prototypeSpies = true;
+        return this;
+    }
+
+    /**
+     * Create the spies of these classes from prototypes, see
+     * `withPrototypeSpies()`.
+     */
+    public TestModule withPrototypeSpies(Class<?>... classes) {
+        checkNotFrozen();
+        invalidatePlan();
+        this.prototypeSpiedClasses.addAll(Arrays.asList(classes));
+        return this;
+    }
+
+    /**
+     * Mock out every interface directly in these packages for the test.
+     */
+    public TestModule withMockedPackages(String... packages) {
+        return withMockedPackages(PackageScan.of(packages));
+    }
+
+    /**
+     * Mock out every interface found by the scan for the test, i.e. with
+     * subpackages or filters. Packages without any class on the class path
+     * are rejected, see `PackageScan.getInterfaces()`.
+     */
+    public TestModule withMockedPackages(PackageScan scan) {
+        checkNotFrozen();
+        invalidatePlan();
+        this.mockedClasses.addAll(scan.getInterfaces());
+        return this;
+    }
+
     /**
      * Spy these classes for the test.
      */
     public TestModule withSpiedClasses(Class<?>... spiedClasses) {
+        checkNotFrozen();
+        invalidatePlan();
         this.spiedClasses.addAll(Arrays.asList(spiedClasses));
         return this;
     }
 
+    /**
+     * Start from the bindings of these production modules, overridden by the
+     * test's instances, mocks, spies and defaults, like `Modules.override()`.
+     * The modules are recorded once per JVM for each equal list of modules,
+     * and only replayed for every injector, so pass the same instances (i.e.
+     * from a static field), or give the modules `equals()` and `hashCode()`.
+     * 
+     * As the recording is replayed, instances bound by the production modules
+     * with `toInstance()` are shared by every injector. Only top-level
+     * bindings can be overridden, not those exposed by private modules.
+     */
+    public TestModule withProductionModules(Module... modules) {
+        checkNotFrozen();
+        invalidatePlan();
+        this.productionModules.addAll(Arrays.asList(modules));
+        return this;
+    }
+
+    /**
+     * Mock every dependency of these classes that isn't bound by the test,
+     * its defaults, its shared instances or its production modules, rather
+     * than letting Guice build real ones. Dependencies that can't be mocked,
+     * i.e. final classes, are left to Guice and have their own dependencies
+     * mocked in turn, and so do dependencies that are roots themselves.
+     * Bindings made in `additionalSetup()` aren't known, and shouldn't
+     * overlap.
+     */
+    public TestModule withAutoMockedDependencies(Class<?>... roots) {
+        checkNotFrozen();
+        this.autoMockRoots.addAll(Arrays.asList(roots));
+        return this;
+    }
+
+    /**
+     * Configure from the test's `@Mocked`, `@Spied` and `@Bound` fields, and
+     * set the `@Mocked` and `@Spied` fields to the mocks and spies once the
+     * injector is created. `@Bound` fields are read right away. Fields are
+     * scanned once per test class.
+     * 
+     * As the fields belong to this test instance, injectors built from this
+     * module aren't reused by `InjectorCache`.
+     */
+    public TestModule withAnnotatedFields(Object test) {
+        checkNotFrozen();
+        invalidatePlan();
+        AnnotatedFields fields = AnnotatedFields.of(test.getClass());
+        instances.addAll(fields.getBoundInstances(test));
+        mockedClasses.addAll(fields.mockedClasses);
+        spiedClasses.addAll(fields.spiedClasses);
+        annotatedTests.add(test);
+        cacheable = false;
+        return this;
+    }
+
+    /**
+     * Create every mock and spy in this mode, unless set otherwise for its
+     * class, i.e. `MockMode.STUB_ONLY` for long-running tests.
+     */
+    public TestModule withMockMode(MockMode mode) {
+        checkNotFrozen();
+        invalidatePlan();
+        this.defaultMockMode = mode;
+        return this;
+    }
+
+    /**
+     * Create the mock or spy of this class in this mode, whether it comes from
+     * `withMockedClasses()`, `withSpiedClasses()` or a default created by the
+     * helper methods.
+     */
+    public TestModule withMockMode(Class<?> c, MockMode mode) {
+        checkNotFrozen();
+        invalidatePlan();
+        this.mockModes.put(c, mode);
+        return this;
+    }
+
+    /**
+     * Create every mock through this engine, i.e. `ProxyMockEngine.shared()`
+     * for cheap interface mocks, unless set otherwise for its class. Anything
+     * the engine doesn't support is still created by `MockFactory`.
+     */
+    public TestModule withMockEngine(MockEngine engine) {
+        checkNotFrozen();
+        invalidatePlan();
+        this.defaultMockEngine = engine;
+        return this;
+    }
+
+    /**
+     * Create the mock or spy of this class through this engine, falling back
+     * to `MockFactory` if the engine doesn't support it.
+     */
+    public TestModule withMockEngine(Class<?> c, MockEngine engine) {
+        checkNotFrozen();
+        invalidatePlan();
+        this.mockEngines.put(c, engine);
+        return this;
+    }
+
+    /**
+     * Create mocked and spied classes only when Guice first provisions them,
+     * rather than up front in `configure()`. Each one is still a singleton, so
+     * the test can fetch it from the injector for stubbing.
+     */
+    public TestModule withLazyMocking() {
+        checkNotFrozen();
+        this.lazy = true;
+        return this;
+    }
+
+    /**
+     * Bind mocks, spies, and the defaults from `createClassMockPair()` and
+     * `createClassSpyPair()` in `ThreadMockScope.shared()`, so that each
+     * thread gets its own, created on first provision. Tests running in
+     * parallel can then share one injector, and call `exit()` on the scope
+     * when they end. Such mocks are left out of `InjectorCache` and
+     * `TestSession` resets, as each test gets new ones.
+     */
+    public TestModule withThreadScopedMocks() {
+        return withThreadScopedMocks(ThreadMockScope.shared());
+    }
+
+    /**
+     * Bind mocks, spies, and the defaults from the helper methods in this
+     * scope, see `withThreadScopedMocks()`.
+     */
+    public TestModule withThreadScopedMocks(ThreadMockScope scope) {
+        checkNotFrozen();
+        this.threadScope = scope;
+        return this;
+    }
+
+    /**
+     * Report how long each phase of `configure()`, and each mock or spy
+     * creation, takes to this listener, i.e. `BindingTimingReport.shared()`.
+     */
+    public TestModule withBindingListener(BindingListener bindingListener) {
+        checkNotFrozen();
+        this.bindingListener = bindingListener;
+        return this;
+    }
+
+    /**
+     * Record how many times, and how long, every key of the injector takes to
+     * provision, i.e. into `ProvisionProfiler.shared()`.
+     */
+    public TestModule withProvisionProfiler(ProvisionProfiler provisionProfiler) {
+        checkNotFrozen();
+        this.provisionProfiler = provisionProfiler;
+        return this;
+    }
+
+    /**
+     * Track, through weak references, every injector built from this module
+     * and every mock and spy it creates or is handed as a default, i.e. into
+     * `MockLeakTracker.shared()`, to find what keeps them reachable.
+     */
+    public TestModule withLeakTracker(MockLeakTracker leakTracker) {
+        checkNotFrozen();
+        this.leakTracker = leakTracker;
+        return this;
+    }
+
+    /**
+     * Never hand this module's injector out of `InjectorCache` again, i.e.
+     * when it binds mutable real instances that shouldn't outlive a test.
+     */
+    public TestModule withoutInjectorCaching() {
+        checkNotFrozen();
+        this.cacheable = false;
+        return this;
+    }
+
+    /**
+     * Take an immutable snapshot of this module's configuration, that can be
+     * shared by tests running in parallel and used to build any number of
+     * injectors concurrently. Each injector still gets its own mocks and spies.
+     * Further `with...` calls on the snapshot are rejected, while this module
+     * remains free to change.
+     * 
+     * Subclasses are copied field by field, so any state they keep for
+     * `getDefaultInstances()` and `additionalSetup()` should be immutable too.
+     */
+    public TestModule freeze() {
+        if (frozen) {
+            return this;
+        }
+
+        TestModule snapshot;
+        try {
+            snapshot = (TestModule) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+        // Pairs with the lock `configure()` is called under
+        synchronized (snapshot) {
+            snapshot.instances = Collections.unmodifiableSet(new LinkedHashSet<>(instances));
+            snapshot.mockedClasses = Collections.unmodifiableSet(new LinkedHashSet<>(mockedClasses));
+            snapshot.spiedClasses = Collections.unmodifiableSet(new LinkedHashSet<>(spiedClasses));
+            snapshot.spiedInstances = Collections.unmodifiableSet(new LinkedHashSet<>(spiedInstances));
+            snapshot.prototypeSpiedClasses = Collections.unmodifiableSet(new LinkedHashSet<>(prototypeSpiedClasses));
+            snapshot.autoMockRoots = Collections.unmodifiableSet(new LinkedHashSet<>(autoMockRoots));
+            snapshot.annotatedTests = Collections.unmodifiableList(new ArrayList<>(annotatedTests));
+            snapshot.productionModules = Collections.unmodifiableList(new ArrayList<>(productionModules));
+            snapshot.mockModes = Collections.unmodifiableMap(new HashMap<>(mockModes));
+            snapshot.mockEngines = Collections.unmodifiableMap(new HashMap<>(mockEngines));
+            snapshot.frozen = true;
+            snapshot.plan = snapshot.plan();
+        }
+        return snapshot;
+    }
+
+    /**
+     * Whether this module is a snapshot taken by `freeze()`.
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Create an injector for the test, as a child of an injector holding
+     * `getSharedInstances()`. Those are built once per `TestModule` subclass
+     * and shared across the JVM, so expensive real bindings are only paid for
+     * once, while mocks, spies, instances and defaults stay per test. A test
+     * can't override shared instances this way.
+     */
+    public Injector createChildInjector() {
+        Injector parent = SharedInjectors.createParent(this);
+        // Pairs with the lock `configure()` is called under
+        synchronized (this) {
+            sharedInParent = true;
+            try {
+                return parent.createChildInjector(this);
+            } finally {
+                sharedInParent = false;
+            }
+        }
+    }
+
+    /**
+     * Create an injector for this module, and a session tracking every mock
+     * and spy created for it, to reset them between tests instead of building
+     * a new injector.
+     */
+    public TestSession createSession() {
+        // Pairs with the lock `configure()` is called under
+        synchronized (this) {
+            Injector injector = Guice.createInjector(this);
+            return new TestSession(injector, createdMocks);
+        }
+    }
+
+    /**
+     * Drop every shared instance built by `createChildInjector()`, i.e. to
+     * release connection pools once the integration tests are done.
+     */
+    public static void clearSharedInjectors() {
+        SharedInjectors.clear();
+    }
+
+    /**
+     * Generate the proxy classes for these classes ahead of time, so that the
+     * first injector using them doesn't pay for it. Shared across the JVM.
+     */
+    public static void prewarm(Class<?>... classes) {
+        MockFactory.shared().prewarm(classes);
+    }
+
     @Override
     protected void configure() {
-        bindInstances(instances);
-        mockClasses(mockedClasses);
-        spyClasses(spiedClasses);
+        createdMocks = new MockRecorder();
+        BindingPlan plan = plan();
+
+        if (provisionProfiler != null) {
+            bindListener(Matchers.any(), provisionProfiler);
+        }
+        if (leakTracker != null) {
+            requestInjection(leakTracker.injectorTracker(getClass()));
+        }
+        for (Object test : annotatedTests) {
+            requestInjection(AnnotatedFields.of(test.getClass()).injectorFor(test));
+        }
+
+        long start = System.nanoTime();
+        bindInstances(plan.instances);
+        start = phaseCompleted(Phase.INSTANCES, start);
+        bindMocks(plan.mocks);
+        start = phaseCompleted(Phase.MOCKS, start);
+        bindMocks(plan.spies);
+        start = phaseCompleted(Phase.SPIES, start);
 
         // Bind classes that haven't been binded, and have explicit defaults
         Collection<ClassInstancePair<?>> defaultInstances = getDefaultInstances();
-        defaultInstances = defaultInstances.stream()
-                // Skip mocked and spied classes
-                .filter(i -> !StringUtils.isBlank(i.name) || (!mockedClasses.contains(i.c) && !spiedClasses.contains(i.c)))
-                // Skip already binded instances
-                .filter(i -> !instances.contains(i))
-                .collect(Collectors.toList());
-        bindInstances(defaultInstances);
+        Collection<ClassInstancePair<?>> sharedInstances = getSharedInstances();
+        if (sharedInParent) {
+            checkSharedNotOverridden(plan, sharedInstances, defaultInstances);
+        }
+        List<ClassInstancePair<?>> notOverridden = new ArrayList<>(defaultInstances.size()
+                + (sharedInParent ? 0 : sharedInstances.size()));
+        addNotOverridden(plan, defaultInstances, notOverridden);
+        if (!sharedInParent) {
+            addNotOverridden(plan, sharedInstances, notOverridden);
+        }
+        defaultInstances = notOverridden;
+        if (threadScope == null) {
+            bindInstances(defaultInstances);
+            recordDefaultMocks(defaultInstances);
+        } else {
+            bindThreadScopedDefaults(defaultInstances);
+        }
+        start = phaseCompleted(Phase.DEFAULTS, start);
+
+        if (plan.production != null) {
+            Set<Key<?>> shadowed = new HashSet<>(plan.keys);
+            for (ClassInstancePair<?> classInstancePair : defaultInstances) {
+                shadowed.add(classInstancePair.getKey());
+            }
+            plan.production.applyTo(binder(), shadowed);
+        }
+        start = phaseCompleted(Phase.PRODUCTION, start);
+
+        if (!autoMockRoots.isEmpty()) {
+            Collection<ClassInstancePair<?>> bound = new ArrayList<>(defaultInstances);
+            bound.addAll(sharedInstances);
+            autoMockDependencies(plan, bound);
+        }
+        start = phaseCompleted(Phase.AUTO_MOCKS, start);
 
         additionalSetup();
+        phaseCompleted(Phase.ADDITIONAL_SETUP, start);
+    }
+
+    /*
+     * Track mocks handed in as defaults, so they can be reset with the ones
+     * created here.
+     */
+    private void recordDefaultMocks(Collection<ClassInstancePair<?>> defaultInstances) {
+        for (ClassInstancePair<?> classInstancePair : defaultInstances) {
+            Object instance = classInstancePair.getInstance();
+            MockEngine engine = null;
+            if (ProxyMockEngine.shared().isMock(instance)) {
+                engine = ProxyMockEngine.shared();
+            } else if (instance != null && MockFactory.shared().isMock(instance)) {
+                engine = MockFactory.shared();
+            }
+            if (engine != null) {
+                createdMocks.recordDefault(instance, engine);
+                // Those from the helper methods are tracked when created
+                if (leakTracker != null && !(classInstancePair instanceof MockClassInstancePair)) {
+                    leakTracker.trackMock(getClass(), instance);
+                }
+            }
+        }
+    }
+
+    /*
+     * Defaults from the helper methods are created again for every thread,
+     * others are shared as they are.
+     */
+    private void bindThreadScopedDefaults(Collection<ClassInstancePair<?>> defaultInstances) {
+        List<ClassInstancePair<?>> shared = new ArrayList<>(defaultInstances.size());
+        for (ClassInstancePair<?> classInstancePair : defaultInstances) {
+            if (classInstancePair instanceof MockClassInstancePair) {
+                bindMock(classInstancePair.getKey(), ((MockClassInstancePair<?>) classInstancePair).supplier);
+            } else {
+                shared.add(classInstancePair);
+            }
+        }
+        bindInstances(shared);
+        recordDefaultMocks(shared);
+    }
+
+    private long phaseCompleted(Phase phase, long start) {
+        long end = System.nanoTime();
+        if (bindingListener != null) {
+            bindingListener.phaseCompleted(getClass(), phase, end - start);
+        }
+        return end;
+    }
+
+    /*
+     * The plan for the current configuration, compiled on first use and
+     * dropped whenever the module changes. Its mocks and spies are shared
+     * with every module configured the same way.
+     */
+    private BindingPlan plan() {
+        BindingPlan plan = this.plan;
+        if (plan == null) {
+            plan = new BindingPlan(instances, mockedClasses, spiedClasses, spiedInstances, prototypeSpiedClasses,
+                    prototypeSpies, mockModes, defaultMockMode, mockEngines, defaultMockEngine, productionModules);
+            this.plan = plan;
+        }
+        return plan;
+    }
+
+    /*
+     * Keep the defaults that aren't replaced by the test's own configuration.
+     */
+    private static void addNotOverridden(BindingPlan plan, Collection<ClassInstancePair<?>> defaultInstances,
+            List<ClassInstancePair<?>> notOverridden) {
+        for (ClassInstancePair<?> classInstancePair : defaultInstances) {
+            if (!plan.overrides(classInstancePair)) {
+                notOverridden.add(classInstancePair);
+            }
+        }
+    }
+
+    /*
+     * Shared instances live in the parent injector, and Guice doesn't let a
+     * child injector rebind them.
+     */
+    private void checkSharedNotOverridden(BindingPlan plan, Collection<ClassInstancePair<?>> sharedInstances,
+            Collection<ClassInstancePair<?>> defaultInstances) {
+        for (ClassInstancePair<?> sharedInstance : sharedInstances) {
+            if (plan.overrides(sharedInstance) || defaultInstances.contains(sharedInstance)) {
+                throw new IllegalStateException(sharedInstance.c.getName()
+                        + (StringUtils.isBlank(sharedInstance.name) ? "" : " named " + sharedInstance.name)
+                        + " is shared through the parent injector, and can't be overridden by a child injector.");
+            }
+        }
     }
 
-    @SuppressWarnings("unchecked")
     private void bindInstances(Collection<ClassInstancePair<?>> instances) {
+        bindInstances(binder(), instances);
+    }
+
+    @SuppressWarnings("unchecked")
+    static void bindInstances(Binder binder, Collection<ClassInstancePair<?>> instances) {
         for (@SuppressWarnings("rawtypes")
         ClassInstancePair classInstancePair : instances) {
-            if (StringUtils.isBlank(classInstancePair.name)) {
-                bind(classInstancePair.c).toInstance(classInstancePair.instance);
-            } else {
-                bind(classInstancePair.c).annotatedWith(Names.named(classInstancePair.name)).toInstance(classInstancePair.instance);
-            }
+            binder.bind(classInstancePair.getKey()).toInstance(classInstancePair.getInstance());
         }
     }
 
-    private void mockClasses(Collection<Class<?>> mockedClasses) {
-        for (Class<?> mockedClass : mockedClasses) {
-            mockClass(mockedClass);
+    /*
+     * Walk the dependency graph from the roots, mocking whatever isn't bound
+     * yet.
+     */
+    private void autoMockDependencies(BindingPlan plan, Collection<ClassInstancePair<?>> boundInstances) {
+        Set<Key<?>> bound = new HashSet<>(plan.keys);
+        if (plan.production != null) {
+            bound.addAll(plan.production.keys);
+        }
+        for (ClassInstancePair<?> classInstancePair : boundInstances) {
+            bound.add(classInstancePair.getKey());
+        }
+
+        Set<Class<?>> walked = new HashSet<>();
+        Deque<Class<?>> toWalk = new ArrayDeque<>(autoMockRoots);
+        while (!toWalk.isEmpty()) {
+            Class<?> type = toWalk.pop();
+            if (!walked.add(type)) {
+                continue;
+            }
+            for (Key<?> dependency : DependencyGraph.getDependencies(type)) {
+                if (!bound.add(dependency)) {
+                    continue;
+                }
+                Class<?> rawType = dependency.getTypeLiteral().getRawType();
+                if (autoMockRoots.contains(rawType) && dependency.getAnnotationType() == null) {
+                    toWalk.push(rawType);
+                } else if (DependencyGraph.isMockable(rawType)) {
+                    bindMock(dependency, mockSupplier(rawType, MockKind.MOCK));
+                } else if (dependency.getAnnotationType() == null && !DependencyGraph.isBuiltIn(rawType)) {
+                    // Built by Guice, its own dependencies need mocking
+                    toWalk.push(rawType);
+                }
+            }
         }
     }
 
-    private <T> void mockClass(Class<T> c) {
-        bind(c).toInstance(Mockito.mock(c));
+    @SuppressWarnings("unchecked")
+    private <T> void bindMock(Key<T> key, Supplier<?> mock) {
+        if (threadScope != null) {
+            bind(key).toProvider((Provider<T>) () -> (T) mock.get()).in(threadScope);
+        } else if (lazy) {
+            bind(key).toProvider(new MemoizingProvider<>((Supplier<T>) mock));
+        } else {
+            bind(key).toInstance((T) mock.get());
+        }
     }
 
-    private void spyClasses(Collection<Class<?>> spiedClasses) {
-        for (Class<?> spiedClass : spiedClasses) {
-            spyClass(spiedClass);
+    private void bindMocks(List<BindingPlan.MockBinding<?>> mocks) {
+        for (BindingPlan.MockBinding<?> mock : mocks) {
+            bindMock(mock);
         }
     }
 
-    private <T> void spyClass(Class<T> c) {
-        bind(c).toInstance(Mockito.spy(c));
+    private <T> void bindMock(BindingPlan.MockBinding<T> mock) {
+        bindMock(mock.key, mockSupplier(mock.c, mock.kind, mock.mode, mock.engine, mock.instance));
+    }
+
+    private MockKind spyKind(Class<?> c) {
+        return BindingPlan.spyKind(c, prototypeSpies, prototypeSpiedClasses);
+    }
+
+    /*
+     * Every mock and spy is created through here. Whatever the supplier
+     * creates is recorded as a mock of the current `configure()`, even if it
+     * is only called later by a lazy binding. Thread-scoped ones aren't
+     * recorded, as every test thread gets its own.
+     */
+    private <T> Supplier<T> mockSupplier(Class<T> c, MockKind requestedKind) {
+        MockKind kind = requestedKind == MockKind.SPY ? spyKind(c) : requestedKind;
+        return mockSupplier(c, kind, mockModes.getOrDefault(c, defaultMockMode),
+                BindingPlan.engine(c, kind, mockEngines.getOrDefault(c, defaultMockEngine)), null);
+    }
+
+    /*
+     * Spies on `instance` if given, otherwise creates through the engine.
+     */
+    private <T> Supplier<T> mockSupplier(Class<T> c, MockKind kind, MockMode mode, MockEngine engine, T instance) {
+        MockRecorder sink = threadScope == null ? createdMocks : null;
+        BindingListener listener = bindingListener;
+        MockLeakTracker tracker = leakTracker;
+        Class<? extends TestModule> module = getClass();
+        return () -> {
+            long start = System.nanoTime();
+            T mock = instance == null ? engine.create(c, kind, mode) : MockFactory.shared().spy(instance, mode);
+            if (listener != null) {
+                listener.mockCreated(module, c, kind, System.nanoTime() - start);
+            }
+            if (sink != null) {
+                sink.record(mock, engine);
+            }
+            if (tracker != null) {
+                tracker.trackMock(module, mock);
+            }
+            return mock;
+        };
     }
 
     /**
-     * Helper method to reduce redundant class reference.
+     * Helper method to reduce redundant class reference. The mock is only
+     * created if the default isn't overridden.
      */
     protected <T> ClassInstancePair<T> createClassMockPair(Class<T> c) {
-        return new ClassInstancePair<>(c, Mockito.mock(c));
+        return new MockClassInstancePair<>(c, mockSupplier(c, MockKind.MOCK));
     }
 
     /**
-     * Helper method to reduce redundant class reference.
+     * Helper method to reduce redundant class reference. The spy is only
+     * created if the default isn't overridden.
      */
     protected <T> ClassInstancePair<T> createClassSpyPair(Class<T> c) {
-        return new ClassInstancePair<>(c, Mockito.spy(c));
+        return new MockClassInstancePair<>(c, mockSupplier(c, MockKind.SPY));
+    }
+
+    /*
+     * Called before any change to the configuration.
+     */
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("TestModule has been frozen, and can no longer be changed.");
+        }
+    }
+
+    /*
+     * Called on any change to the configuration the plan is resolved from.
+     */
+    private void invalidatePlan() {
+        plan = null;
+    }
+
+    /**
+     * Whether injectors built from this module may be reused by
+     * `InjectorCache`.
+     */
+    boolean isCacheable() {
+        return cacheable;
+    }
+
+    /**
+     * A value identifying this module's configuration: two modules with equal
+     * fingerprints produce equivalent injectors. Explicit instances are
+     * compared with their own `equals()`.
+     */
+    Object fingerprint() {
+        Set<List<Object>> instanceKeys = new HashSet<>();
+        Set<List<Object>> spiedInstanceKeys = new HashSet<>();
+        for (ClassInstancePair<?> classInstancePair : instances) {
+            instanceKeys.add(Arrays.asList(classInstancePair.c, classInstancePair.name, classInstancePair.getInstance()));
+        }
+        for (ClassInstancePair<?> classInstancePair : spiedInstances) {
+            spiedInstanceKeys.add(Arrays.asList(classInstancePair.c, classInstancePair.getInstance()));
+        }
+        return Arrays.asList(getClass(), instanceKeys, new HashSet<>(mockedClasses), new HashSet<>(spiedClasses),
+                spiedInstanceKeys, new HashSet<>(prototypeSpiedClasses), prototypeSpies,
+                new HashSet<>(autoMockRoots), new HashMap<>(mockModes), defaultMockMode,
+                new HashMap<>(mockEngines), defaultMockEngine, new ArrayList<>(productionModules), provisionProfiler, lazy,
+                threadScope, leakTracker);
+    }
+
+    /**
+     * Mocks and spies created by the latest `configure()`, through
+     * `withMockedClasses()`, `withSpiedClasses()` and the helper methods, and
+     * mocks handed in as defaults.
+     */
+    MockRecorder getCreatedMocks() {
+        return createdMocks;
     }
 
     /**
@@ -176,12 +815,38 @@ public class TestModule extends AbstractModule {
     protected void additionalSetup() {
     }
 
+    /**
+     * Override to provide real, test-invariant bindings, i.e. session
+     * factories or connection pools. With `createChildInjector()` they are
+     * bound once, in a parent injector shared by every test using this
+     * subclass, so they must not depend on per-test state. Otherwise they
+     * behave like `getDefaultInstances()`. Use `LazyClassInstancePair` so
+     * they are only built once.
+     */
+    protected Collection<ClassInstancePair<?>> getSharedInstances() {
+        return Collections.emptyList();
+    }
+
     /**
      * Override to provide which classes should be defaulted to what instances,
-     * if not explicitly done so by individual tests.
+     * if not explicitly done so by individual tests. Use
+     * `LazyClassInstancePair` for defaults that are expensive to build, so they
+     * are only built when not overridden.
      */
     protected Collection<ClassInstancePair<?>> getDefaultInstances() {
         return Collections.emptyList();
     }
 
+    /*
+     * The defaults from `createClassMockPair()` and `createClassSpyPair()`,
+     * told apart so they can be thread-scoped.
+     */
+    private static class MockClassInstancePair<T> extends LazyClassInstancePair<T> {
+
+        private MockClassInstancePair(Class<T> c, Supplier<T> supplier) {
+            super(c, supplier);
+        }
+
+    }
+
 }
@@ -0,0 +1,68 @@
+package com.collectivehealth.test.module;
+
+import java.util.Collections;
+import java.util.List;
+import com.google.inject.Injector;
+
+/**
+ * An injector built from a `TestModule`, along with every mock and spy the
+ * module created for it, so that one injector can be reused across a whole
+ * test class rather than rebuilt for every test.
+ *
+ * i.e.
+ *
+ * <pre>
+ * private static final TestSession SESSION = new ExampleTestModule()
+ *         .withMockedClasses(Session.class)
+ *         .createSession();
+ *
+ * &#64;After
+ * public void tearDown() {
+ *     SESSION.reset();
+ * }
+ * </pre>
+ *
+ * The session is not meant to be shared by tests running in parallel, as they
+ * would reset each other's mocks.
+ */
+
+public class TestSession {
+
+    private final Injector injector;
+    private final MockRecorder mocks;
+
+    TestSession(Injector injector, MockRecorder mocks) {
+        this.injector = injector;
+        this.mocks = mocks;
+    }
+
+    public Injector getInjector() {
+        return injector;
+    }
+
+    /**
+     * Shortcut for `getInjector().getInstance(c)`.
+     */
+    public <T> T getInstance(Class<T> c) {
+        return injector.getInstance(c);
+    }
+
+    /**
+     * Every mock and spy tracked so far: those from `withMockedClasses()`,
+     * `withSpiedClasses()`, `createClassMockPair()` and `createClassSpyPair()`,
+     * mocks handed in as defaults, and lazy mocks once provisioned.
+     */
+    public List<Object> getMocks() {
+        return Collections.unmodifiableList(mocks.getMocks());
+    }
+
+    /**
+     * Clear the stubbing and invocations of every mock and spy the module
+     * created. Mocks built by hand in `getDefaultInstances()` keep their
+     * stubbing, and only have their invocations cleared.
+     */
+    public void reset() {
+        mocks.resetAll();
+    }
+
+}
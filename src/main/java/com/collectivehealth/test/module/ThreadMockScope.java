@@ -0,0 +1,93 @@
+package com.collectivehealth.test.module;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import com.google.inject.Key;
+import com.google.inject.Provider;
+import com.google.inject.Scope;
+
+/**
+ * A Guice scope handing each thread its own instance of every binding in it,
+ * created on the thread's first provision and kept until the thread calls
+ * `exit()`. `TestModule.withThreadScopedMocks()` binds mocks and spies in it,
+ * so that tests running in parallel can share one injector without seeing
+ * each other's stubbing.
+ *
+ * i.e.
+ *
+ * <pre>
+ * private static final Injector INJECTOR = Guice.createInjector(new ExampleTestModule()
+ *         .withMockedClasses(Session.class)
+ *         .withThreadScopedMocks());
+ *
+ * &#64;After
+ * public void tearDown() {
+ *     ThreadMockScope.shared().exit();
+ * }
+ * </pre>
+ *
+ * Mocks should be fetched from the injector, or through an injected
+ * `Provider`, by the test thread itself. A real singleton depending on a
+ * thread-scoped mock keeps whichever mock it was built with.
+ */
+
+public class ThreadMockScope implements Scope {
+
+    private static final ThreadMockScope SHARED = new ThreadMockScope();
+
+    // Scoped provider -> this thread's instance, so that injectors sharing the
+    // scope never share instances.
+    private final ThreadLocal<Map<Provider<?>, Object>> instances = ThreadLocal.withInitial(IdentityHashMap::new);
+
+    /**
+     * The scope used by `TestModule.withThreadScopedMocks()`.
+     */
+    public static ThreadMockScope shared() {
+        return SHARED;
+    }
+
+    @Override
+    public <T> Provider<T> scope(Key<T> key, Provider<T> unscoped) {
+        return new Provider<T>() {
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T get() {
+                Map<Provider<?>, Object> current = instances.get();
+                T instance = (T) current.get(this);
+                if (instance == null) {
+                    instance = unscoped.get();
+                    current.put(this, instance);
+                }
+                return instance;
+            }
+
+            @Override
+            public String toString() {
+                return unscoped + "[" + ThreadMockScope.this + "]";
+            }
+
+        };
+    }
+
+    /**
+     * Drop every instance created for the calling thread, typically when its
+     * test ends. The thread's next provision creates new ones.
+     */
+    public void exit() {
+        instances.remove();
+    }
+
+    /**
+     * Number of instances created for the calling thread so far.
+     */
+    public int size() {
+        return instances.get().size();
+    }
+
+    @Override
+    public String toString() {
+        return "ThreadMockScope";
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.collectivehealth.test.module;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import com.collectivehealth.test.module.depedency.Collaborator;
+import com.collectivehealth.test.module.depedency.TestClass;
+import com.google.inject.Key;
+
+public class BindingPlanTest {
+
+    @Test
+    public void testEqualConfigurationsShareMocks() {
+        BindingPlan plan1 = plan(Collections.singletonList(new ClassInstancePair<>(String.class, "1")), MockMode.RECORDING);
+        BindingPlan plan2 = plan(Collections.singletonList(new ClassInstancePair<>(Integer.class, 2)), MockMode.RECORDING);
+
+        assertSame(plan1.mocks, plan2.mocks);
+        assertSame(plan1.spies, plan2.spies);
+        assertTrue(plan1.keys.contains(Key.get(String.class)));
+        assertTrue(plan2.keys.contains(Key.get(Integer.class)));
+        assertTrue(plan2.keys.contains(Key.get(TestClass.class)));
+        assertEquals(3, plan2.keys.size());
+    }
+
+    @Test
+    public void testDifferentConfigurationsDontShareMocks() {
+        BindingPlan plan1 = plan(Collections.emptyList(), MockMode.RECORDING);
+        BindingPlan plan2 = plan(Collections.emptyList(), MockMode.STUB_ONLY);
+
+        assertNotSame(plan1.mocks, plan2.mocks);
+        assertEquals(MockMode.STUB_ONLY, plan2.mocks.get(0).mode);
+    }
+
+    private static BindingPlan plan(List<ClassInstancePair<?>> instances, MockMode defaultMockMode) {
+        return new BindingPlan(instances, Arrays.asList(TestClass.class), Arrays.asList(Collaborator.class),
+                Collections.emptyList(), Collections.emptyList(), false, Collections.emptyMap(), defaultMockMode,
+                Collections.emptyMap(), MockFactory.shared(), Collections.emptyList());
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.collectivehealth.test.module;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import com.collectivehealth.test.module.BindingListener.Phase;
+import com.collectivehealth.test.module.depedency.CountedTestClass;
+import com.collectivehealth.test.module.depedency.ExtendedWithMockedDefaultTestModule;
+import com.collectivehealth.test.module.depedency.TestClass;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+public class BindingTimingReportTest {
+
+    @Test
+    public void testListener() {
+        List<Phase> phases = Collections.synchronizedList(new ArrayList<>());
+        List<Class<?>> created = Collections.synchronizedList(new ArrayList<>());
+        BindingListener listener = new BindingListener() {
+
+            @Override
+            public void phaseCompleted(Class<? extends TestModule> module, Phase phase, long nanos) {
+                assertEquals(ExtendedWithMockedDefaultTestModule.class, module);
+                phases.add(phase);
+            }
+
+            @Override
+            public void mockCreated(Class<? extends TestModule> module, Class<?> c, MockKind kind, long nanos) {
+                created.add(c);
+            }
+
+        };
+
+        Guice.createInjector(new ExtendedWithMockedDefaultTestModule()
+                .withBindingListener(listener)
+                .withSpiedClasses(CountedTestClass.class));
+
+        assertEquals(Arrays.asList(Phase.values()), phases);
+        assertEquals(Arrays.asList(CountedTestClass.class), created);
+    }
+
+    @Test
+    public void testLazyMockCreation() {
+        List<Class<?>> created = Collections.synchronizedList(new ArrayList<>());
+        BindingListener listener = new BindingListener() {
+
+            @Override
+            public void mockCreated(Class<? extends TestModule> module, Class<?> c, MockKind kind, long nanos) {
+                assertEquals(MockKind.MOCK, kind);
+                created.add(c);
+            }
+
+        };
+
+        Injector injector = Guice.createInjector(new TestModule()
+                .withBindingListener(listener)
+                .withLazyMocking()
+                .withMockedClasses(TestClass.class));
+        assertTrue(created.isEmpty());
+
+        injector.getInstance(TestClass.class);
+        assertEquals(Arrays.asList(TestClass.class), created);
+    }
+
+    @Test
+    public void testReport() {
+        BindingTimingReport report = new BindingTimingReport();
+        Guice.createInjector(new TestModule()
+                .withBindingListener(report)
+                .withMockedClasses(TestClass.class)
+                .withSpiedClasses(CountedTestClass.class));
+
+        assertTrue(report.getCreationNanos(TestClass.class) > 0);
+        assertTrue(report.getCreationNanos(CountedTestClass.class) > 0);
+        assertTrue(report.getTotalNanos(TestModule.class) >= report.getCreationNanos(TestClass.class));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        report.writeTo(new PrintStream(out, true));
+        String summary = out.toString();
+        assertTrue(summary.contains(TestModule.class.getName()));
+        assertTrue(summary.contains(TestClass.class.getName()));
+        assertTrue(summary.contains(CountedTestClass.class.getName()));
+
+        report.clear();
+        assertEquals(0, report.getTotalNanos(TestModule.class));
+    }
+
+}
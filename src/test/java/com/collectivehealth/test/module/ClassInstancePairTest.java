@@ -4,6 +4,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Test;
 
 public class ClassInstancePairTest {
@@ -29,4 +30,32 @@ public class ClassInstancePairTest {
         assertNotEquals(string5Pair, integer5Pair);
     }
 
+    @Test
+    public void testLazyEquals() {
+        ClassInstancePair<String> stringPair = new ClassInstancePair<>(String.class, "Test");
+        ClassInstancePair<String> stringLazyPair = new LazyClassInstancePair<>(String.class, () -> "Hello World");
+        ClassInstancePair<String> stringNamedPair = new ClassInstancePair<>(String.class, "Name1", "Test");
+        ClassInstancePair<String> stringNamedLazyPair = new LazyClassInstancePair<>(String.class, "Name1", () -> "Hello World");
+
+        assertEquals(stringPair, stringLazyPair);
+        assertEquals(stringLazyPair, stringPair);
+        assertEquals(stringPair.hashCode(), stringLazyPair.hashCode());
+        assertEquals(stringNamedPair, stringNamedLazyPair);
+        assertNotEquals(stringLazyPair, stringNamedLazyPair);
+    }
+
+    @Test
+    public void testLazyInstance() {
+        AtomicInteger calls = new AtomicInteger();
+        ClassInstancePair<String> pair = new LazyClassInstancePair<>(String.class, () -> {
+            calls.incrementAndGet();
+            return "Test";
+        });
+
+        assertEquals(0, calls.get());
+        assertEquals("Test", pair.getInstance());
+        assertEquals("Test", pair.getInstance());
+        assertEquals(1, calls.get());
+    }
+
 }
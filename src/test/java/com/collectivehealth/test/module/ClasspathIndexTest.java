@@ -0,0 +1,58 @@
+package com.collectivehealth.test.module;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import com.collectivehealth.test.module.depedency.scanned.Mailer;
+import com.collectivehealth.test.module.depedency.scanned.Repository;
+import com.collectivehealth.test.module.depedency.scanned.audit.Auditor;
+
+public class ClasspathIndexTest {
+
+    private static final String PACKAGE = "com.collectivehealth.test.module.depedency.scanned";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testScan() {
+        assertEquals(new HashSet<>(Arrays.asList(Mailer.class, Repository.class)),
+                new HashSet<>(PackageScan.of(PACKAGE).getInterfaces()));
+        assertEquals(new HashSet<>(Arrays.asList(Mailer.class, Repository.class, Auditor.class)),
+                new HashSet<>(PackageScan.of(PACKAGE).withSubpackages().getInterfaces()));
+        assertEquals(Arrays.asList(Auditor.class),
+                PackageScan.of(PACKAGE).withSubpackages().including(".*\\.audit\\..*").getInterfaces());
+        assertEquals(Arrays.asList(Repository.class),
+                PackageScan.of(PACKAGE).excluding(Mailer.class).getInterfaces());
+
+        // Resolved once
+        assertTrue(PackageScan.of(PACKAGE).getInterfaces() == PackageScan.of(PACKAGE).getInterfaces());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testScanMissingPackage() {
+        new TestModule().withMockedPackages(PACKAGE + ".missing");
+    }
+
+    @Test
+    public void testPersistedJars() throws IOException {
+        Path cacheDirectory = folder.newFolder().toPath();
+        ClasspathIndex index = new ClasspathIndex(ClasspathIndex.systemClassPath(), cacheDirectory);
+        Path cacheFile = cacheDirectory.resolve("classpath-index.txt");
+        assertTrue(Files.isRegularFile(cacheFile));
+        // i.e. Guice's jar
+        assertTrue(index.getClassNames("com.google.inject", false).contains("com.google.inject.Injector"));
+
+        ClasspathIndex reloaded = new ClasspathIndex(ClasspathIndex.systemClassPath(), cacheDirectory);
+        assertEquals(index.size(), reloaded.size());
+        assertEquals(index.getClassNames("com.google.inject", true), reloaded.getClassNames("com.google.inject", true));
+    }
+
+}
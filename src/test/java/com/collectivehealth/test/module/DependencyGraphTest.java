@@ -0,0 +1,49 @@
+package com.collectivehealth.test.module;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import java.util.Arrays;
+import java.util.HashSet;
+import org.junit.Test;
+import com.collectivehealth.test.module.depedency.AutoMockedService;
+import com.collectivehealth.test.module.depedency.Collaborator;
+import com.collectivehealth.test.module.depedency.Constant;
+import com.collectivehealth.test.module.depedency.FinalDependency;
+import com.collectivehealth.test.module.depedency.TestClass;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.name.Names;
+
+public class DependencyGraphTest {
+
+    @Test
+    public void testGetDependencies() {
+        assertEquals(new HashSet<>(Arrays.asList(
+                Key.get(TestClass.class),
+                Key.get(Collaborator.class),
+                Key.get(FinalDependency.class),
+                Key.get(TestClass.class, Names.named(Constant.ANNOTATED_NAME)))),
+                DependencyGraph.getDependencies(AutoMockedService.class));
+
+        // No injection points at all
+        assertTrue(DependencyGraph.getDependencies(Collaborator.class).isEmpty());
+    }
+
+    @Test
+    public void testCached() {
+        assertSame(DependencyGraph.getDependencies(AutoMockedService.class), DependencyGraph.getDependencies(AutoMockedService.class));
+    }
+
+    @Test
+    public void testIsMockable() {
+        assertTrue(DependencyGraph.isMockable(TestClass.class));
+        assertTrue(DependencyGraph.isMockable(Collaborator.class));
+        assertFalse(DependencyGraph.isMockable(FinalDependency.class));
+        assertFalse(DependencyGraph.isMockable(String.class));
+        assertFalse(DependencyGraph.isMockable(int.class));
+        assertFalse(DependencyGraph.isMockable(Injector.class));
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.collectivehealth.test.module;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import java.util.Arrays;
+import java.util.Collection;
+import org.junit.Test;
+import org.mockito.Mockito;
+import com.collectivehealth.test.module.depedency.Constant;
+import com.collectivehealth.test.module.depedency.ExtendedWithMockedDefaultTestModule;
+import com.collectivehealth.test.module.depedency.TestClass;
+import com.google.inject.Injector;
+
+public class InjectorCacheTest {
+
+    @Test
+    public void testReuseSameConfiguration() {
+        InjectorCache cache = new InjectorCache(InjectorCache.DEFAULT_MAXIMUM_SIZE);
+
+        Injector injector1 = cache.getInjector(new TestModule().withMockedClasses(TestClass.class));
+        Injector injector2 = cache.getInjector(new TestModule().withMockedClasses(TestClass.class));
+
+        assertSame(injector1, injector2);
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testDifferentConfiguration() {
+        InjectorCache cache = new InjectorCache(InjectorCache.DEFAULT_MAXIMUM_SIZE);
+
+        Injector mocked = cache.getInjector(new TestModule().withMockedClasses(TestClass.class));
+        Injector spied = cache.getInjector(new TestModule().withSpiedClasses(TestClass.class));
+        Injector extended = cache.getInjector(new ExtendedWithMockedDefaultTestModule().withMockedClasses(TestClass.class));
+        Injector named = cache.getInjector(new TestModule().withInstance(String.class, Constant.ANNOTATED_NAME, Constant.MOCKED_RETURN_VALUE_1));
+        Injector otherNamed = cache.getInjector(new TestModule().withInstance(String.class, Constant.ANNOTATED_NAME, Constant.MOCKED_RETURN_VALUE_2));
+
+        assertNotSame(mocked, spied);
+        assertNotSame(mocked, extended);
+        assertNotSame(named, otherNamed);
+        assertEquals(5, cache.size());
+    }
+
+    @Test
+    public void testMocksReset() {
+        InjectorCache cache = new InjectorCache(InjectorCache.DEFAULT_MAXIMUM_SIZE);
+
+        TestClass mock = cache.getInjector(new TestModule().withMockedClasses(TestClass.class)).getInstance(TestClass.class);
+        Mockito.when(mock.getReturnValue()).thenReturn(Constant.MOCKED_RETURN_VALUE_1);
+        mock.getReturnValue();
+
+        TestClass reused = cache.getInjector(new TestModule().withMockedClasses(TestClass.class)).getInstance(TestClass.class);
+        assertSame(mock, reused);
+        // Stubbing and invocations are gone
+        Mockito.verify(reused, Mockito.never()).getReturnValue();
+        assertNull(reused.getReturnValue());
+    }
+
+    @Test
+    public void testDefaultMocksReset() {
+        InjectorCache cache = new InjectorCache(InjectorCache.DEFAULT_MAXIMUM_SIZE);
+        TestModule module = new TestModule() {
+
+            @Override
+            protected Collection<ClassInstancePair<?>> getDefaultInstances() {
+                return Arrays.asList(createClassSpyPair(TestClass.class));
+            }
+
+        };
+
+        TestClass spy = cache.getInjector(module).getInstance(TestClass.class);
+        Mockito.when(spy.getReturnValue()).thenReturn(Constant.MOCKED_RETURN_VALUE_1);
+
+        TestClass reused = cache.getInjector(module).getInstance(TestClass.class);
+        assertSame(spy, reused);
+        assertEquals(Constant.DEFAULT_RETURN_VALUE, reused.getReturnValue());
+    }
+
+    @Test
+    public void testLazyMocksReset() {
+        InjectorCache cache = new InjectorCache(InjectorCache.DEFAULT_MAXIMUM_SIZE);
+
+        TestClass mock = cache.getInjector(new TestModule().withLazyMocking().withMockedClasses(TestClass.class)).getInstance(TestClass.class);
+        Mockito.when(mock.getReturnValue()).thenReturn(Constant.MOCKED_RETURN_VALUE_1);
+
+        TestClass reused = cache.getInjector(new TestModule().withLazyMocking().withMockedClasses(TestClass.class)).getInstance(TestClass.class);
+        assertSame(mock, reused);
+        assertNull(reused.getReturnValue());
+    }
+
+    @Test
+    public void testEviction() {
+        InjectorCache cache = new InjectorCache(1);
+
+        Injector mocked = cache.getInjector(new TestModule().withMockedClasses(TestClass.class));
+        cache.getInjector(new TestModule().withSpiedClasses(TestClass.class));
+
+        assertEquals(1, cache.size());
+        assertNotSame(mocked, cache.getInjector(new TestModule().withMockedClasses(TestClass.class)));
+    }
+
+    @Test
+    public void testWithoutInjectorCaching() {
+        InjectorCache cache = new InjectorCache(InjectorCache.DEFAULT_MAXIMUM_SIZE);
+
+        Injector injector1 = cache.getInjector(new TestModule().withoutInjectorCaching().withMockedClasses(TestClass.class));
+        Injector injector2 = cache.getInjector(new TestModule().withoutInjectorCaching().withMockedClasses(TestClass.class));
+
+        assertNotSame(injector1, injector2);
+        assertEquals(0, cache.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaximumSize() {
+        new InjectorCache(0);
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.collectivehealth.test.module;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.mockito.Mockito;
+import com.collectivehealth.test.module.BindingListener.Phase;
+import com.collectivehealth.test.module.depedency.Constant;
+import com.collectivehealth.test.module.depedency.TestClass;
+import com.google.inject.CreationException;
+import com.google.inject.Injector;
+
+public class InjectorPoolTest {
+
+    @Test
+    public void testTake() throws InterruptedException {
+        AtomicInteger configured = new AtomicInteger();
+        TestModule module = new TestModule()
+                .withMockedClasses(TestClass.class)
+                .withBindingListener(new BindingListener() {
+
+                    @Override
+                    public void phaseCompleted(Class<? extends TestModule> module, Phase phase, long nanos) {
+                        if (phase == Phase.INSTANCES) {
+                            configured.incrementAndGet();
+                        }
+                    }
+
+                });
+
+        try (InjectorPool pool = new InjectorPool(module, 2)) {
+            assertTrue(pool.getModule().isFrozen());
+            Injector injector1 = pool.take();
+            Injector injector2 = pool.take();
+            assertNotSame(injector1, injector2);
+
+            // Each with its own mocks
+            TestClass mock = injector1.getInstance(TestClass.class);
+            assertNotSame(mock, injector2.getInstance(TestClass.class));
+            Mockito.when(mock.getReturnValue()).thenReturn(Constant.MOCKED_RETURN_VALUE_1);
+            assertEquals(null, injector2.getInstance(TestClass.class).getReturnValue());
+
+            // Two taken, and two more built ahead
+            long deadline = System.currentTimeMillis() + 10000;
+            while (configured.get() < 4 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(4, configured.get());
+        }
+    }
+
+    @Test
+    public void testFailure() {
+        TestModule module = new TestModule()
+                .withMockedClasses(TestClass.class)
+                .withInstance(TestClass.class, new TestClass());
+        try (InjectorPool pool = new InjectorPool(module, 1)) {
+            pool.take();
+            fail();
+        } catch (CreationException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testClosedWhileTaking() throws Exception {
+        CountDownLatch building = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        TestModule module = new TestModule()
+                .withBindingListener(new BindingListener() {
+
+                    @Override
+                    public void phaseCompleted(Class<? extends TestModule> module, Phase phase, long nanos) {
+                        if (phase == Phase.INSTANCES) {
+                            building.countDown();
+                            try {
+                                release.await();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        }
+                    }
+
+                });
+
+        InjectorPool pool = new InjectorPool(module, 1, 1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertTrue(building.await(10, TimeUnit.SECONDS));
+            Future<Injector> taken = executor.submit(pool::take);
+            // Wait for the injector, still being built, to be taken
+            long deadline = System.currentTimeMillis() + 10000;
+            while (!pool.isWaiting() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            pool.close();
+            try {
+                taken.get(10, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testClosed() {
+        InjectorPool pool = new InjectorPool(new TestModule(), 1);
+        pool.close();
+        pool.take();
+    }
+
+}
@@ -0,0 +1,116 @@
+package com.collectivehealth.test.module;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+import org.mockito.Mockito;
+import com.collectivehealth.test.module.depedency.ConfiguredTestClass;
+import com.collectivehealth.test.module.depedency.Constant;
+import com.collectivehealth.test.module.depedency.CountedTestClass;
+import com.collectivehealth.test.module.depedency.TestClass;
+
+public class MockFactoryTest {
+
+    @Test
+    public void testMockReusesClass() {
+        MockFactory factory = new MockFactory();
+        TestClass mock1 = factory.mock(TestClass.class);
+        TestClass mock2 = factory.mock(TestClass.class);
+
+        assertSame(mock1.getClass(), mock2.getClass());
+        assertNotSame(mock1, mock2);
+
+        // Instances don't share stubbing
+        Mockito.when(mock1.getReturnValue()).thenReturn(Constant.MOCKED_RETURN_VALUE_1);
+        assertEquals(Constant.MOCKED_RETURN_VALUE_1, mock1.getReturnValue());
+        assertNull(mock2.getReturnValue());
+    }
+
+    @Test
+    public void testSpy() {
+        MockFactory factory = new MockFactory();
+        TestClass spy = factory.spy(TestClass.class);
+
+        assertEquals(Constant.DEFAULT_RETURN_VALUE, spy.getReturnValue());
+        assertSame(factory.mock(TestClass.class).getClass(), spy.getClass());
+    }
+
+    @Test
+    public void testPrototypeSpy() {
+        MockFactory factory = new MockFactory();
+        CountedTestClass spy1 = factory.prototypeSpy(CountedTestClass.class, MockMode.RECORDING);
+        int constructed = CountedTestClass.CONSTRUCTED.get();
+        CountedTestClass spy2 = factory.prototypeSpy(CountedTestClass.class, MockMode.STUB_ONLY);
+
+        assertEquals(constructed, CountedTestClass.CONSTRUCTED.get());
+        assertNotSame(spy1, spy2);
+        assertEquals(Constant.DEFAULT_RETURN_VALUE, spy2.getReturnValue());
+
+        // Built again once cleared
+        factory.clear();
+        factory.prototypeSpy(CountedTestClass.class, MockMode.RECORDING);
+        assertEquals(constructed + 1, CountedTestClass.CONSTRUCTED.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPrototypeSpyWithoutNoArgConstructor() {
+        new MockFactory().prototypeSpy(ConfiguredTestClass.class, MockMode.RECORDING);
+    }
+
+    @Test
+    public void testPrewarm() {
+        MockFactory factory = new MockFactory();
+        assertFalse(factory.isPrepared(TestClass.class));
+
+        factory.prewarm(TestClass.class);
+        assertTrue(factory.isPrepared(TestClass.class));
+
+        factory.clear();
+        assertFalse(factory.isPrepared(TestClass.class));
+    }
+
+    @Test
+    public void testCountingSpy() throws Exception {
+        MockFactory factory = new MockFactory();
+        TestClass spy = factory.spy(TestClass.class, MockMode.COUNTING);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> calls = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                calls.add(executor.submit(() -> {
+                    for (int j = 0; j < 1000; j++) {
+                        assertEquals(Constant.DEFAULT_RETURN_VALUE, spy.getReturnValue());
+                    }
+                }));
+            }
+            // Rethrows any assertion error from the calling threads
+            for (Future<?> call : calls) {
+                call.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        MockCounters.verify(spy, "getReturnValue", 4000);
+        assertFalse(Mockito.mockingDetails(spy).getInvocations().iterator().hasNext());
+
+        factory.reset(spy);
+        assertEquals(0, MockCounters.invocationCount(spy, "getReturnValue"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotCounting() {
+        MockCounters.invocationCount(new MockFactory().mock(TestClass.class), "getReturnValue");
+    }
+
+}
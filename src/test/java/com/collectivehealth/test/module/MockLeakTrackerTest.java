@@ -0,0 +1,50 @@
+package com.collectivehealth.test.module;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import org.junit.Test;
+import com.collectivehealth.test.module.depedency.CountedTestClass;
+import com.collectivehealth.test.module.depedency.ExtendedWithMockedDefaultTestModule;
+import com.collectivehealth.test.module.depedency.TestClass;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+public class MockLeakTrackerTest {
+
+    @Test
+    public void testRetained() throws Exception {
+        MockLeakTracker tracker = new MockLeakTracker();
+        Injector injector = Guice.createInjector(new ExtendedWithMockedDefaultTestModule()
+                .withLeakTracker(tracker)
+                .withMockedClasses(Runnable.class)
+                .withSpiedClasses(CountedTestClass.class));
+
+        assertEquals(1, tracker.getRetainedInjectors(ExtendedWithMockedDefaultTestModule.class));
+        // The default, the mock and the spy
+        assertEquals(3, tracker.getRetainedMocks(ExtendedWithMockedDefaultTestModule.class));
+        assertEquals(0, tracker.getRetainedMocks(TestModule.class));
+
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        tracker.writeTo(new PrintStream(report, true, "UTF-8"), "testRetained");
+        assertTrue(report.toString("UTF-8").contains(ExtendedWithMockedDefaultTestModule.class.getName()));
+        // Still reachable until here
+        assertNotNull(injector.getInstance(TestClass.class));
+    }
+
+    @Test
+    public void testCollected() throws Exception {
+        MockLeakTracker tracker = new MockLeakTracker();
+        Guice.createInjector(new TestModule()
+                .withLeakTracker(tracker)
+                .withMockedClasses(Runnable.class));
+
+        // Nothing keeps the injector or its mock reachable
+        tracker.writeTo(new PrintStream(new ByteArrayOutputStream(), true, "UTF-8"), "testCollected");
+        assertEquals(0, tracker.getRetainedInjectors(TestModule.class));
+        assertEquals(0, tracker.getRetainedMocks(TestModule.class));
+    }
+
+}
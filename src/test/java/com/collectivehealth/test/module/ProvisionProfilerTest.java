@@ -0,0 +1,51 @@
+package com.collectivehealth.test.module;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import org.junit.Test;
+import com.collectivehealth.test.module.depedency.AutoMockedService;
+import com.collectivehealth.test.module.depedency.Collaborator;
+import com.collectivehealth.test.module.depedency.Constant;
+import com.collectivehealth.test.module.depedency.FinalDependency;
+import com.collectivehealth.test.module.depedency.TestClass;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+
+public class ProvisionProfilerTest {
+
+    @Test
+    public void testProfiler() {
+        ProvisionProfiler profiler = new ProvisionProfiler();
+        Injector injector = Guice.createInjector(new TestModule()
+                .withProvisionProfiler(profiler)
+                .withMockedClasses(Collaborator.class)
+                .withInstance(TestClass.class, Constant.ANNOTATED_NAME, new TestClass()));
+        injector.getInstance(AutoMockedService.class);
+        injector.getInstance(AutoMockedService.class);
+
+        Key<AutoMockedService> service = Key.get(AutoMockedService.class);
+        assertEquals(2, profiler.getProvisionCount(service));
+        assertEquals(2, profiler.getProvisionCount(Key.get(TestClass.class)));
+        // Bound as is, only injected once
+        assertEquals(1, profiler.getProvisionCount(Key.get(Collaborator.class)));
+        assertEquals(new HashSet<>(Arrays.asList(Key.get(TestClass.class), Key.get(FinalDependency.class))),
+                profiler.getDependencies(service));
+        assertTrue(profiler.getTotalNanos(service) >= profiler.getSelfNanos(service)
+                + profiler.getTotalNanos(Key.get(TestClass.class)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        profiler.writeTo(new PrintStream(out, true));
+        String summary = out.toString();
+        assertTrue(summary.contains(AutoMockedService.class.getName()));
+        assertTrue(summary.contains("  " + Key.get(FinalDependency.class)));
+
+        profiler.clear();
+        assertEquals(0, profiler.getProvisionCount(service));
+    }
+
+}
@@ -0,0 +1,113 @@
+package com.collectivehealth.test.module;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiFunction;
+import org.junit.Test;
+import com.collectivehealth.test.module.depedency.Collaborator;
+import com.collectivehealth.test.module.depedency.Constant;
+import com.collectivehealth.test.module.depedency.TestClass;
+
+public class ProxyMockEngineTest {
+
+    public interface Repository {
+
+        int count();
+
+        Optional<String> find(String id);
+
+        List<String> findAll();
+
+        Map<String, String> index();
+
+    }
+
+    private final ProxyMockEngine engine = ProxyMockEngine.shared();
+
+    @Test
+    public void testSupports() {
+        assertTrue(engine.supports(Collaborator.class, MockKind.MOCK));
+        assertFalse(engine.supports(Collaborator.class, MockKind.SPY));
+        assertFalse(engine.supports(TestClass.class, MockKind.MOCK));
+
+        try {
+            engine.create(TestClass.class, MockKind.MOCK, MockMode.RECORDING);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testEmptyValues() {
+        Repository repository = engine.create(Repository.class, MockKind.MOCK, MockMode.RECORDING);
+
+        assertTrue(engine.isMock(repository));
+        assertEquals(0, repository.count());
+        assertEquals(Optional.empty(), repository.find("id"));
+        assertTrue(repository.findAll().isEmpty());
+        assertTrue(repository.index().isEmpty());
+        assertNotEquals(repository, engine.create(Repository.class, MockKind.MOCK, MockMode.RECORDING));
+    }
+
+    @Test
+    public void testStubbing() {
+        Repository repository = engine.create(Repository.class, MockKind.MOCK, MockMode.RECORDING);
+        ProxyMocks.when(repository.find("id")).thenReturn(Optional.of(Constant.MOCKED_RETURN_VALUE_1));
+        ProxyMocks.when(repository.count()).thenAnswer(args -> 42);
+
+        // Matched on arguments
+        assertEquals(Optional.of(Constant.MOCKED_RETURN_VALUE_1), repository.find("id"));
+        assertEquals(Optional.empty(), repository.find("other"));
+        assertEquals(42, repository.count());
+
+        // The stubbing calls aren't counted
+        assertEquals(2, ProxyMocks.invocationCount(repository, "find"));
+        assertEquals(1, ProxyMocks.invocationCount(repository, "count"));
+
+        engine.reset(repository);
+        assertEquals(Optional.empty(), repository.find("id"));
+        assertEquals(1, ProxyMocks.invocationCount(repository, "find"));
+    }
+
+    @Test
+    public void testThenThrow() {
+        @SuppressWarnings("unchecked")
+        BiFunction<String, String, String> function = engine.create(BiFunction.class, MockKind.MOCK, MockMode.RECORDING);
+        ProxyMocks.when(function.apply("a", null)).thenThrow(new IllegalStateException());
+
+        try {
+            function.apply("a", null);
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        assertNull(function.apply("b", null));
+    }
+
+    @Test
+    public void testStubOnly() {
+        Collaborator collaborator = engine.create(Collaborator.class, MockKind.MOCK, MockMode.STUB_ONLY);
+        ProxyMocks.when(collaborator.collaborate()).thenReturn(Constant.MOCKED_RETURN_VALUE_1);
+
+        assertEquals(Constant.MOCKED_RETURN_VALUE_1, collaborator.collaborate());
+        assertEquals(0, ProxyMocks.invocationCount(collaborator, "collaborate"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testWhenWithoutCall() {
+        Collaborator collaborator = engine.create(Collaborator.class, MockKind.MOCK, MockMode.RECORDING);
+        ProxyMocks.when(collaborator.collaborate()).thenReturn(Constant.MOCKED_RETURN_VALUE_1);
+
+        // The call has been used up by the first stubbing
+        ProxyMocks.when(Constant.MOCKED_RETURN_VALUE_1);
+    }
+
+}
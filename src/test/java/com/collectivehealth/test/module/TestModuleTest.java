@@ -1,20 +1,48 @@
 package com.collectivehealth.test.module;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Test;
 import org.mockito.Mockito;
+import com.collectivehealth.test.module.depedency.AnnotatedTest;
+import com.collectivehealth.test.module.depedency.AutoMockedService;
+import com.collectivehealth.test.module.depedency.Collaborator;
+import com.collectivehealth.test.module.depedency.ConfiguredTestClass;
 import com.collectivehealth.test.module.depedency.Constant;
+import com.collectivehealth.test.module.depedency.CountedTestClass;
 import com.collectivehealth.test.module.depedency.ExtendedWithMockedDefaultTestModule;
 import com.collectivehealth.test.module.depedency.ExtendedWithMockedNamedDefaultTestModule;
+import com.collectivehealth.test.module.depedency.ExtendedWithSharedTestModule;
+import com.collectivehealth.test.module.depedency.ProductionModule;
 import com.collectivehealth.test.module.depedency.TestClass;
+import com.collectivehealth.test.module.depedency.scanned.Mailer;
+import com.collectivehealth.test.module.depedency.scanned.Repository;
+import com.google.inject.AbstractModule;
 import com.google.inject.ConfigurationException;
+import com.google.inject.CreationException;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.google.inject.Key;
+import com.google.inject.Module;
 import com.google.inject.name.Names;
 
 public class TestModuleTest {
@@ -99,6 +127,110 @@ public class TestModuleTest {
         assertEquals(Constant.MOCKED_RETURN_VALUE_1, mock.getReturnValue());
     }
 
+    @Test
+    public void testLazyMockClass() {
+        Injector injector = Guice.createInjector(new TestModule()
+                .withLazyMocking()
+                .withMockedClasses(TestClass.class));
+
+        TestClass mock = injector.getInstance(TestClass.class);
+        // Same instance on every provision, so it can be stubbed
+        assertSame(mock, injector.getInstance(TestClass.class));
+        assertNull(mock.getReturnValue());
+
+        Mockito.when(mock.getReturnValue()).thenReturn(Constant.MOCKED_RETURN_VALUE_1);
+        assertEquals(Constant.MOCKED_RETURN_VALUE_1, injector.getInstance(TestClass.class).getReturnValue());
+    }
+
+    @Test
+    public void testLazySpyClass() {
+        CountedTestClass.CONSTRUCTED.set(0);
+        Injector injector = Guice.createInjector(new TestModule()
+                .withLazyMocking()
+                .withSpiedClasses(CountedTestClass.class));
+
+        // Not spied until provisioned
+        assertEquals(0, CountedTestClass.CONSTRUCTED.get());
+
+        CountedTestClass spy = injector.getInstance(CountedTestClass.class);
+        assertSame(spy, injector.getInstance(CountedTestClass.class));
+        assertEquals(1, CountedTestClass.CONSTRUCTED.get());
+        assertEquals(Constant.DEFAULT_RETURN_VALUE, spy.getReturnValue());
+    }
+
+    @Test
+    public void testSpiedInstance() {
+        ConfiguredTestClass instance = new ConfiguredTestClass(Constant.MOCKED_RETURN_VALUE_1);
+        TestModule module = new TestModule().withSpiedInstance(TestClass.class, instance);
+
+        TestClass spy = Guice.createInjector(module).getInstance(TestClass.class);
+        // State copied from the instance
+        assertEquals(Constant.MOCKED_RETURN_VALUE_1, spy.getReturnValue());
+        assertTrue(Mockito.mockingDetails(spy).isSpy());
+
+        Mockito.when(spy.getReturnValue()).thenReturn(Constant.MOCKED_RETURN_VALUE_2);
+        assertEquals(Constant.MOCKED_RETURN_VALUE_2, spy.getReturnValue());
+        assertEquals(Constant.MOCKED_RETURN_VALUE_1, instance.getReturnValue());
+
+        // A new spy per injector
+        TestClass other = Guice.createInjector(module).getInstance(TestClass.class);
+        assertNotSame(spy, other);
+        assertEquals(Constant.MOCKED_RETURN_VALUE_1, other.getReturnValue());
+    }
+
+    @Test
+    public void testPrototypeSpies() {
+        TestModule module = new TestModule()
+                .withPrototypeSpies(CountedTestClass.class)
+                .withSpiedClasses(CountedTestClass.class);
+
+        CountedTestClass spy1 = Guice.createInjector(module).getInstance(CountedTestClass.class);
+        int constructed = CountedTestClass.CONSTRUCTED.get();
+        CountedTestClass spy2 = Guice.createInjector(module).getInstance(CountedTestClass.class);
+
+        // The prototype is only built once
+        assertEquals(constructed, CountedTestClass.CONSTRUCTED.get());
+        assertNotSame(spy1, spy2);
+        assertTrue(Mockito.mockingDetails(spy2).isSpy());
+        assertEquals(Constant.DEFAULT_RETURN_VALUE, spy2.getReturnValue());
+    }
+
+    @Test
+    public void testStubOnlyMockMode() {
+        Injector injector = Guice.createInjector(new TestModule()
+                .withMockMode(MockMode.STUB_ONLY)
+                .withMockedClasses(TestClass.class)
+                .withSpiedClasses(CountedTestClass.class));
+
+        TestClass mock = injector.getInstance(TestClass.class);
+        assertTrue(Mockito.mockingDetails(mock).getMockCreationSettings().isStubOnly());
+        // Still stubbable
+        Mockito.when(mock.getReturnValue()).thenReturn(Constant.MOCKED_RETURN_VALUE_1);
+        assertEquals(Constant.MOCKED_RETURN_VALUE_1, mock.getReturnValue());
+
+        CountedTestClass spy = injector.getInstance(CountedTestClass.class);
+        assertTrue(Mockito.mockingDetails(spy).getMockCreationSettings().isStubOnly());
+        assertEquals(Constant.DEFAULT_RETURN_VALUE, spy.getReturnValue());
+    }
+
+    @Test
+    public void testPerClassMockMode() {
+        Injector injector = Guice.createInjector(new TestModule() {
+
+            @Override
+            protected Collection<ClassInstancePair<?>> getDefaultInstances() {
+                return Arrays.asList(createClassMockPair(Runnable.class));
+            }
+
+        }
+                .withMockMode(MockMode.STUB_ONLY)
+                .withMockMode(TestClass.class, MockMode.RECORDING)
+                .withMockedClasses(TestClass.class));
+
+        assertFalse(Mockito.mockingDetails(injector.getInstance(TestClass.class)).getMockCreationSettings().isStubOnly());
+        assertTrue(Mockito.mockingDetails(injector.getInstance(Runnable.class)).getMockCreationSettings().isStubOnly());
+    }
+
     @Test
     public void testCreateMockPair() {
         Injector injector = Guice.createInjector(new TestModule() {
@@ -266,4 +398,308 @@ public class TestModuleTest {
         assertEquals(Constant.MOCKED_RETURN_VALUE_1, mock.getReturnValue());
     }
 
+    @Test
+    public void testLazyDefault() {
+        AtomicInteger built = new AtomicInteger();
+        Injector injector = Guice.createInjector(createLazyDefaultTestModule(built));
+
+        assertEquals(Constant.DEFAULT_RETURN_VALUE, injector.getInstance(TestClass.class).getReturnValue());
+        assertEquals(1, built.get());
+    }
+
+    @Test
+    public void testLazyDefaultOverridden() {
+        AtomicInteger built = new AtomicInteger();
+        Guice.createInjector(createLazyDefaultTestModule(built).withInstance(TestClass.class, new TestClass()));
+        Guice.createInjector(createLazyDefaultTestModule(built).withMockedClasses(TestClass.class));
+        Guice.createInjector(createLazyDefaultTestModule(built).withSpiedClasses(TestClass.class));
+
+        // Overridden, so never built
+        assertEquals(0, built.get());
+    }
+
+    @Test
+    public void testFreeze() {
+        TestModule module = new TestModule().withMockedClasses(TestClass.class);
+        TestModule snapshot = module.freeze();
+
+        assertTrue(snapshot.isFrozen());
+        assertSame(snapshot, snapshot.freeze());
+        try {
+            snapshot.withInstance(String.class, Constant.MOCKED_RETURN_VALUE_1);
+            fail("Exception expected.");
+        } catch (IllegalStateException e) {
+            // Frozen
+        }
+
+        // The original is still mutable, and doesn't affect the snapshot
+        assertFalse(module.isFrozen());
+        module.withInstance(String.class, Constant.MOCKED_RETURN_VALUE_1);
+        assertEquals(Constant.MOCKED_RETURN_VALUE_1, Guice.createInjector(module).getInstance(String.class));
+        assertNotEquals(Constant.MOCKED_RETURN_VALUE_1, Guice.createInjector(snapshot).getInstance(String.class));
+    }
+
+    @Test
+    public void testFreezeKeepsSubclass() {
+        Injector injector = Guice.createInjector(new ExtendedWithMockedNamedDefaultTestModule().freeze());
+
+        assertEquals(Constant.MOCKED_RETURN_VALUE_1, injector.getInstance(Key.get(TestClass.class, Names.named(Constant.ANNOTATED_NAME))).getReturnValue());
+    }
+
+    @Test
+    public void testFrozenConcurrentInjectors() throws Exception {
+        TestModule snapshot = new ExtendedWithMockedNamedDefaultTestModule()
+                .withMockedClasses(TestClass.class)
+                .withSpiedClasses(CountedTestClass.class)
+                .withInstance(String.class, Constant.MOCKED_RETURN_VALUE_2)
+                .freeze();
+        int threads = 16;
+        int injectorsPerThread = 25;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<List<TestClass>>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    List<TestClass> mocks = new ArrayList<>();
+                    for (int j = 0; j < injectorsPerThread; j++) {
+                        Injector injector = Guice.createInjector(snapshot);
+                        assertEquals(Constant.MOCKED_RETURN_VALUE_2, injector.getInstance(String.class));
+                        assertEquals(Constant.MOCKED_RETURN_VALUE_1,
+                                injector.getInstance(Key.get(TestClass.class, Names.named(Constant.ANNOTATED_NAME))).getReturnValue());
+                        assertEquals(Constant.DEFAULT_RETURN_VALUE, injector.getInstance(CountedTestClass.class).getReturnValue());
+                        mocks.add(injector.getInstance(TestClass.class));
+                    }
+                    return mocks;
+                }));
+            }
+            start.countDown();
+
+            // Every injector got its own mock
+            Set<TestClass> mocks = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Future<List<TestClass>> future : futures) {
+                mocks.addAll(future.get(1, TimeUnit.MINUTES));
+            }
+            assertEquals(threads * injectorsPerThread, mocks.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testChildInjector() {
+        TestModule.clearSharedInjectors();
+        CountedTestClass.CONSTRUCTED.set(0);
+
+        Injector injector1 = new ExtendedWithSharedTestModule().withMockedClasses(TestClass.class).createChildInjector();
+        Injector injector2 = new ExtendedWithSharedTestModule().withMockedClasses(TestClass.class).createChildInjector();
+
+        // Shared instance built once
+        assertSame(injector1.getInstance(CountedTestClass.class), injector2.getInstance(CountedTestClass.class));
+        assertEquals(1, CountedTestClass.CONSTRUCTED.get());
+
+        // Mocks are per test
+        assertNotSame(injector1.getInstance(TestClass.class), injector2.getInstance(TestClass.class));
+    }
+
+    @Test
+    public void testChildInjectorMockingTypeProvisionedByAnother() {
+        Injector injector1 = new ExtendedWithSharedTestModule().createChildInjector();
+        assertEquals(Constant.DEFAULT_RETURN_VALUE, injector1.getInstance(TestClass.class).getReturnValue());
+
+        // The real binding stays in the first child
+        Injector injector2 = new ExtendedWithSharedTestModule().withMockedClasses(TestClass.class).createChildInjector();
+        assertTrue(Mockito.mockingDetails(injector2.getInstance(TestClass.class)).isMock());
+    }
+
+    @Test
+    public void testSharedInstanceWithoutChildInjector() {
+        Injector injector = Guice.createInjector(new ExtendedWithSharedTestModule());
+        assertEquals(Constant.DEFAULT_RETURN_VALUE, injector.getInstance(CountedTestClass.class).getReturnValue());
+
+        // Behaves like a default
+        Injector overridden = Guice.createInjector(new ExtendedWithSharedTestModule().withMockedClasses(CountedTestClass.class));
+        assertNull(overridden.getInstance(CountedTestClass.class).getReturnValue());
+    }
+
+    @Test
+    public void testChildInjectorOverridingSharedInstance() {
+        try {
+            new ExtendedWithSharedTestModule().withMockedClasses(CountedTestClass.class).createChildInjector();
+            fail("Exception expected.");
+        } catch (CreationException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testAutoMockedDependencies() {
+        Injector injector = Guice.createInjector(new TestModule().withAutoMockedDependencies(AutoMockedService.class));
+        AutoMockedService service = injector.getInstance(AutoMockedService.class);
+
+        assertTrue(Mockito.mockingDetails(service.getTestClass()).isMock());
+        assertTrue(Mockito.mockingDetails(service.getNamedTestClass()).isMock());
+        assertNotSame(service.getTestClass(), service.getNamedTestClass());
+        assertTrue(Mockito.mockingDetails(service.getCollaborator()).isMock());
+
+        // Not mockable, so built by Guice, with the same mocked dependency
+        assertFalse(Mockito.mockingDetails(service.getFinalDependency()).isMock());
+        assertSame(service.getCollaborator(), service.getFinalDependency().getCollaborator());
+    }
+
+    @Test
+    public void testAutoMockedDependenciesSkipBound() {
+        TestClass named = new TestClass();
+        Injector injector = Guice.createInjector(new ExtendedWithMockedDefaultTestModule()
+                .withAutoMockedDependencies(AutoMockedService.class)
+                .withInstance(TestClass.class, Constant.ANNOTATED_NAME, named));
+        AutoMockedService service = injector.getInstance(AutoMockedService.class);
+
+        // From the default, and the instance
+        assertEquals(Constant.MOCKED_RETURN_VALUE_1, service.getTestClass().getReturnValue());
+        assertSame(named, service.getNamedTestClass());
+    }
+
+    @Test
+    public void testProxyMockEngine() {
+        InjectorCache cache = new InjectorCache(1);
+        TestModule module = new TestModule()
+                .withMockEngine(ProxyMockEngine.shared())
+                .withMockedClasses(Collaborator.class, TestClass.class);
+        Injector injector = cache.getInjector(module);
+        Collaborator collaborator = injector.getInstance(Collaborator.class);
+
+        // Interfaces go through the engine, classes fall back to Mockito
+        assertTrue(ProxyMocks.isMock(collaborator));
+        assertTrue(Mockito.mockingDetails(injector.getInstance(TestClass.class)).isMock());
+
+        ProxyMocks.when(collaborator.collaborate()).thenReturn(Constant.MOCKED_RETURN_VALUE_1);
+        assertEquals(Constant.MOCKED_RETURN_VALUE_1, collaborator.collaborate());
+
+        // Reset by the cache, through the engine that created it
+        assertSame(injector, cache.getInjector(module));
+        assertNull(collaborator.collaborate());
+    }
+
+    @Test
+    public void testReconfiguredAfterChange() {
+        TestModule module = new ExtendedWithMockedDefaultTestModule();
+        Injector injector = Guice.createInjector(module);
+        assertEquals(Constant.MOCKED_RETURN_VALUE_1, injector.getInstance(TestClass.class).getReturnValue());
+
+        // The default is now overridden, not replayed from the first configuration
+        TestClass instance = new TestClass();
+        injector = Guice.createInjector(module.withInstance(TestClass.class, instance));
+        assertSame(instance, injector.getInstance(TestClass.class));
+    }
+
+    @Test
+    public void testAnnotatedFields() {
+        AnnotatedTest test = new AnnotatedTest();
+        TestModule module = new TestModule().withAnnotatedFields(test);
+        Injector injector = Guice.createInjector(module);
+
+        assertSame(injector.getInstance(Collaborator.class), test.getCollaborator());
+        assertTrue(Mockito.mockingDetails(test.getCollaborator()).isMock());
+        assertSame(injector.getInstance(CountedTestClass.class), test.getSpy());
+        assertTrue(Mockito.mockingDetails(test.getSpy()).isSpy());
+        assertSame(test.getNamed(), injector.getInstance(Key.get(TestClass.class, Names.named(Constant.ANNOTATED_NAME))));
+        assertEquals(Integer.valueOf(42), injector.getInstance(Integer.class));
+        assertFalse(module.isCacheable());
+    }
+
+    @Test
+    public void testAnnotatedFieldsLazy() {
+        AnnotatedTest test = new AnnotatedTest();
+        Injector injector = Guice.createInjector(new TestModule().withLazyMocking().withAnnotatedFields(test));
+
+        // Provisioned to be set
+        assertSame(injector.getInstance(Collaborator.class), test.getCollaborator());
+    }
+
+    @Test
+    public void testMockedPackages() {
+        Injector injector = Guice.createInjector(new TestModule()
+                .withMockedPackages("com.collectivehealth.test.module.depedency.scanned"));
+
+        assertTrue(Mockito.mockingDetails(injector.getInstance(Repository.class)).isMock());
+        assertTrue(Mockito.mockingDetails(injector.getInstance(Mailer.class)).isMock());
+    }
+
+    @Test
+    public void testProductionModules() {
+        ProductionModule production = new ProductionModule();
+        TestClass named = new TestClass();
+        Injector injector = Guice.createInjector(new ExtendedWithMockedDefaultTestModule()
+                .withProductionModules(production)
+                .withMockedClasses(Collaborator.class)
+                .withInstance(TestClass.class, Constant.ANNOTATED_NAME, named));
+
+        // Overridden by the mock, the instance and the default
+        assertTrue(Mockito.mockingDetails(injector.getInstance(Collaborator.class)).isMock());
+        assertSame(named, injector.getInstance(Key.get(TestClass.class, Names.named(Constant.ANNOTATED_NAME))));
+        assertEquals(Constant.MOCKED_RETURN_VALUE_1, injector.getInstance(TestClass.class).getReturnValue());
+
+        // Only kept by the production module
+        injector = Guice.createInjector(new TestModule().withProductionModules(production));
+        assertTrue(injector.getInstance(TestClass.class) instanceof CountedTestClass);
+        assertEquals(Constant.DEFAULT_RETURN_VALUE, injector.getInstance(Collaborator.class).collaborate());
+    }
+
+    @Test
+    public void testProductionModulesRecordedOnce() {
+        AtomicInteger configured = new AtomicInteger();
+        Module production = new AbstractModule() {
+
+            @Override
+            protected void configure() {
+                configured.incrementAndGet();
+                bind(TestClass.class).to(CountedTestClass.class);
+            }
+
+        };
+        for (int i = 0; i < 3; i++) {
+            Guice.createInjector(new TestModule().withProductionModules(production).withMockedClasses(TestClass.class));
+        }
+        assertEquals(1, configured.get());
+    }
+
+    @Test
+    public void testProductionModulesWithProviderMethods() {
+        ProductionModule production = new ProductionModule();
+        int configured = ProductionModule.CONFIGURED.get();
+        for (int i = 0; i < 2; i++) {
+            Injector injector = Guice.createInjector(new TestModule().withProductionModules(production));
+            assertEquals(Constant.DEFAULT_RETURN_VALUE,
+                    injector.getInstance(Key.get(String.class, Names.named(Constant.ANNOTATED_NAME))));
+        }
+        // Recorded again for every injector, as provider methods can't be
+        // replayed
+        assertTrue(ProductionModule.CONFIGURED.get() > configured + 1);
+    }
+
+    @Test
+    public void testProductionModulesBounded() {
+        for (int i = 0; i <= RecordedModules.MAXIMUM_SIZE; i++) {
+            Guice.createInjector(new TestModule().withProductionModules(new ProductionModule()));
+        }
+        assertTrue(RecordedModules.size() <= RecordedModules.MAXIMUM_SIZE);
+    }
+
+    private TestModule createLazyDefaultTestModule(AtomicInteger built) {
+        return new TestModule() {
+
+            @Override
+            protected Collection<ClassInstancePair<?>> getDefaultInstances() {
+                return Arrays.asList(new LazyClassInstancePair<>(TestClass.class, () -> {
+                    built.incrementAndGet();
+                    return new TestClass();
+                }));
+            }
+
+        };
+    }
+
 }
@@ -0,0 +1,89 @@
+package com.collectivehealth.test.module;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import java.util.Arrays;
+import java.util.Collection;
+import org.junit.Test;
+import org.mockito.Mockito;
+import com.collectivehealth.test.module.depedency.Collaborator;
+import com.collectivehealth.test.module.depedency.Constant;
+import com.collectivehealth.test.module.depedency.CountedTestClass;
+import com.collectivehealth.test.module.depedency.ExtendedWithMockedDefaultTestModule;
+import com.collectivehealth.test.module.depedency.TestClass;
+
+public class TestSessionTest {
+
+    @Test
+    public void testReset() {
+        TestSession session = new TestModule()
+                .withMockedClasses(TestClass.class)
+                .withSpiedClasses(CountedTestClass.class)
+                .createSession();
+        TestClass mock = session.getInstance(TestClass.class);
+        CountedTestClass spy = session.getInstance(CountedTestClass.class);
+        assertEquals(Arrays.asList(mock, spy), session.getMocks());
+
+        Mockito.when(mock.getReturnValue()).thenReturn(Constant.MOCKED_RETURN_VALUE_1);
+        Mockito.doReturn(Constant.MOCKED_RETURN_VALUE_2).when(spy).getReturnValue();
+        assertEquals(Constant.MOCKED_RETURN_VALUE_1, mock.getReturnValue());
+
+        session.reset();
+        assertNull(mock.getReturnValue());
+        assertEquals(Constant.DEFAULT_RETURN_VALUE, spy.getReturnValue());
+        Mockito.verify(mock).getReturnValue();
+        assertSame(mock, session.getInstance(TestClass.class));
+    }
+
+    @Test
+    public void testResetHelperDefaults() {
+        TestSession session = new TestModule() {
+
+            @Override
+            protected Collection<ClassInstancePair<?>> getDefaultInstances() {
+                return Arrays.asList(createClassMockPair(TestClass.class), createClassSpyPair(CountedTestClass.class));
+            }
+
+        }.createSession();
+        TestClass mock = session.getInstance(TestClass.class);
+        assertEquals(2, session.getMocks().size());
+
+        Mockito.when(mock.getReturnValue()).thenReturn(Constant.MOCKED_RETURN_VALUE_1);
+        session.reset();
+        assertNull(mock.getReturnValue());
+    }
+
+    @Test
+    public void testResetKeepsDefaultStubbing() {
+        TestSession session = new ExtendedWithMockedDefaultTestModule().createSession();
+        TestClass mock = session.getInstance(TestClass.class);
+        assertEquals(Arrays.asList(mock), session.getMocks());
+
+        assertEquals(Constant.MOCKED_RETURN_VALUE_1, mock.getReturnValue());
+        session.reset();
+
+        // Stubbed by the default, only the invocation is gone
+        Mockito.verifyZeroInteractions(mock);
+        assertEquals(Constant.MOCKED_RETURN_VALUE_1, mock.getReturnValue());
+    }
+
+    @Test
+    public void testLazyMocksTracked() {
+        TestSession session = new TestModule()
+                .withLazyMocking()
+                .withMockEngine(ProxyMockEngine.shared())
+                .withMockedClasses(Collaborator.class)
+                .createSession();
+        assertTrue(session.getMocks().isEmpty());
+
+        Collaborator collaborator = session.getInstance(Collaborator.class);
+        assertEquals(Arrays.asList(collaborator), session.getMocks());
+
+        ProxyMocks.when(collaborator.collaborate()).thenReturn(Constant.MOCKED_RETURN_VALUE_1);
+        session.reset();
+        assertNull(collaborator.collaborate());
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.collectivehealth.test.module;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.Mockito;
+import com.collectivehealth.test.module.depedency.Constant;
+import com.collectivehealth.test.module.depedency.TestClass;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+public class ThreadMockScopeTest {
+
+    private final ThreadMockScope scope = new ThreadMockScope();
+
+    @After
+    public void tearDown() {
+        scope.exit();
+    }
+
+    @Test
+    public void testMockPerThread() throws Exception {
+        TestModule module = new TestModule()
+                .withMockedClasses(TestClass.class)
+                .withThreadScopedMocks(scope);
+        Injector injector = Guice.createInjector(module);
+        assertEquals(0, scope.size());
+
+        TestClass mock = injector.getInstance(TestClass.class);
+        assertSame(mock, injector.getInstance(TestClass.class));
+        Mockito.when(mock.getReturnValue()).thenReturn(Constant.MOCKED_RETURN_VALUE_1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<TestClass> other = executor.submit(() -> {
+                TestClass otherMock = injector.getInstance(TestClass.class);
+                // No crosstalk between stubbings
+                assertNull(otherMock.getReturnValue());
+                Mockito.when(otherMock.getReturnValue()).thenReturn(Constant.MOCKED_RETURN_VALUE_2);
+                return otherMock;
+            });
+            assertNotSame(mock, other.get());
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(Constant.MOCKED_RETURN_VALUE_1, mock.getReturnValue());
+        assertTrue(module.getCreatedMocks().getMocks().isEmpty());
+
+        // A new mock once the test has ended
+        scope.exit();
+        assertNotSame(mock, injector.getInstance(TestClass.class));
+    }
+
+    @Test
+    public void testMockedDefaultPerThread() throws Exception {
+        Injector injector = Guice.createInjector(new TestModule() {
+
+            @Override
+            protected Collection<ClassInstancePair<?>> getDefaultInstances() {
+                return Collections.singletonList(createClassMockPair(TestClass.class));
+            }
+
+        }.withThreadScopedMocks(scope));
+
+        TestClass mock = injector.getInstance(TestClass.class);
+        assertTrue(Mockito.mockingDetails(mock).isMock());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertNotSame(mock, executor.submit(() -> injector.getInstance(TestClass.class)).get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testInjectorsDontShareMocks() {
+        TestModule module = new TestModule()
+                .withMockedClasses(TestClass.class)
+                .withThreadScopedMocks(scope);
+
+        assertNotSame(Guice.createInjector(module).getInstance(TestClass.class),
+                Guice.createInjector(module).getInstance(TestClass.class));
+        assertEquals(2, scope.size());
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.collectivehealth.test.module.depedency;
+
+import com.collectivehealth.test.module.Mocked;
+
+/*
+ * A base test class declaring a shared mock.
+ */
+public class AnnotatedBaseTest {
+
+    @Mocked
+    private Collaborator collaborator;
+
+    public Collaborator getCollaborator() {
+        return collaborator;
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.collectivehealth.test.module.depedency;
+
+import com.collectivehealth.test.module.Bound;
+import com.collectivehealth.test.module.Spied;
+
+/*
+ * A test class declaring its mocks, spies and instances through annotations,
+ * on private fields of its own and of its superclass.
+ */
+public class AnnotatedTest extends AnnotatedBaseTest {
+
+    @Spied
+    private CountedTestClass spy;
+
+    @Bound(name = Constant.ANNOTATED_NAME)
+    private final TestClass named = new TestClass();
+
+    @Bound
+    private final int number = 42;
+
+    public CountedTestClass getSpy() {
+        return spy;
+    }
+
+    public TestClass getNamed() {
+        return named;
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.collectivehealth.test.module.depedency;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import com.google.inject.Provider;
+
+/*
+ * A real class, with constructor, provider and field dependencies, to test
+ * mocking whatever it depends on.
+ */
+public class AutoMockedService {
+
+    private final TestClass testClass;
+    private final Provider<Collaborator> collaborator;
+    private final FinalDependency finalDependency;
+
+    @Inject
+    @Named(Constant.ANNOTATED_NAME)
+    TestClass namedTestClass;
+
+    @Inject
+    public AutoMockedService(TestClass testClass, Provider<Collaborator> collaborator, FinalDependency finalDependency) {
+        this.testClass = testClass;
+        this.collaborator = collaborator;
+        this.finalDependency = finalDependency;
+    }
+
+    public TestClass getTestClass() {
+        return testClass;
+    }
+
+    public TestClass getNamedTestClass() {
+        return namedTestClass;
+    }
+
+    public Collaborator getCollaborator() {
+        return collaborator.get();
+    }
+
+    public FinalDependency getFinalDependency() {
+        return finalDependency;
+    }
+
+}
@@ -0,0 +1,10 @@
+package com.collectivehealth.test.module.depedency;
+
+/*
+ * An interface with no implementation, which Guice can't build on its own.
+ */
+public interface Collaborator {
+
+    String collaborate();
+
+}
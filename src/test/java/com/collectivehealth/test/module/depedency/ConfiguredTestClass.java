@@ -0,0 +1,20 @@
+package com.collectivehealth.test.module.depedency;
+
+/*
+ * A class whose behavior depends on the state it was constructed with, to help
+ * identify whether that state has been carried over to a spy.
+ */
+public class ConfiguredTestClass extends TestClass {
+
+    private final String returnValue;
+
+    public ConfiguredTestClass(String returnValue) {
+        this.returnValue = returnValue;
+    }
+
+    @Override
+    public String getReturnValue() {
+        return returnValue;
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.collectivehealth.test.module.depedency;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * A class that counts how many times it has been constructed, to help
+ * identify whether (and how often) an instance has been built.
+ */
+public class CountedTestClass extends TestClass {
+
+    public static final AtomicInteger CONSTRUCTED = new AtomicInteger();
+
+    public CountedTestClass() {
+        CONSTRUCTED.incrementAndGet();
+    }
+
+}
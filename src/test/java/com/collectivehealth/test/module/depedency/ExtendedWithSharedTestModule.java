@@ -0,0 +1,20 @@
+package com.collectivehealth.test.module.depedency;
+
+import java.util.Arrays;
+import java.util.Collection;
+import com.collectivehealth.test.module.ClassInstancePair;
+import com.collectivehealth.test.module.LazyClassInstancePair;
+import com.collectivehealth.test.module.TestModule;
+
+/*
+ * Extending `TestModule` with a shared instance, standing in for an expensive
+ * real binding, to test parent and child injectors.
+ */
+public class ExtendedWithSharedTestModule extends TestModule {
+
+    @Override
+    protected Collection<ClassInstancePair<?>> getSharedInstances() {
+        return Arrays.asList(new LazyClassInstancePair<>(CountedTestClass.class, CountedTestClass::new));
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.collectivehealth.test.module.depedency;
+
+import javax.inject.Inject;
+
+/*
+ * A final class, which can't be mocked and is left to Guice, while its own
+ * dependency still needs mocking.
+ */
+public final class FinalDependency {
+
+    private final Collaborator collaborator;
+
+    @Inject
+    public FinalDependency(Collaborator collaborator) {
+        this.collaborator = collaborator;
+    }
+
+    public Collaborator getCollaborator() {
+        return collaborator;
+    }
+
+}
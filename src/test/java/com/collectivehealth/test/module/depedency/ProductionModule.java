@@ -0,0 +1,32 @@
+package com.collectivehealth.test.module.depedency;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import com.google.inject.AbstractModule;
+import com.google.inject.Provides;
+import com.google.inject.name.Named;
+import com.google.inject.name.Names;
+
+/*
+ * A stand-in for a real module, counting how many times it has been
+ * configured. Like most real modules, it has a `@Provides` method with
+ * parameters.
+ */
+public class ProductionModule extends AbstractModule {
+
+    public static final AtomicInteger CONFIGURED = new AtomicInteger();
+
+    @Override
+    protected void configure() {
+        CONFIGURED.incrementAndGet();
+        bind(TestClass.class).to(CountedTestClass.class);
+        bind(TestClass.class).annotatedWith(Names.named(Constant.ANNOTATED_NAME)).toInstance(new TestClass());
+        bind(Collaborator.class).toInstance(() -> Constant.DEFAULT_RETURN_VALUE);
+    }
+
+    @Provides
+    @Named(Constant.ANNOTATED_NAME)
+    String provideCollaboration(Collaborator collaborator) {
+        return collaborator.collaborate();
+    }
+
+}
@@ -0,0 +1,12 @@
+package com.collectivehealth.test.module.depedency.scanned;
+
+/*
+ * A class in a scanned package, which isn't mocked.
+ */
+public class MailerImpl implements Mailer {
+
+    @Override
+    public void send(String message) {
+    }
+
+}
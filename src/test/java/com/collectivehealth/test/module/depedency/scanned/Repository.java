@@ -0,0 +1,10 @@
+package com.collectivehealth.test.module.depedency.scanned;
+
+/*
+ * An interface to be found by package scans.
+ */
+public interface Repository {
+
+    long count();
+
+}
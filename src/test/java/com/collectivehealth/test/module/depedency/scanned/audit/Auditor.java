@@ -0,0 +1,10 @@
+package com.collectivehealth.test.module.depedency.scanned.audit;
+
+/*
+ * An interface in a subpackage, only found by scans including subpackages.
+ */
+public interface Auditor {
+
+    void audit(String event);
+
+}